@@ -0,0 +1,29 @@
+package com.example.nasa.benchmark;
+
+import com.example.nasa.config.HibernateConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+
+/**
+ * Context cho benchmark: HibernateConfig thật + repository/service, không có tầng web
+ */
+@Configuration
+@Import(HibernateConfig.class)
+@ComponentScan(basePackages = {"com.example.nasa.repository", "com.example.nasa.service"})
+public class BenchmarkConfig {
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    // CommentFragmentCache cần template engine; benchmark không render view
+    @Bean
+    public SpringTemplateEngine templateEngine() {
+        return new SpringTemplateEngine();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.nasa.benchmark;
+
+import com.example.nasa.config.HibernateConfig;
+import com.example.nasa.model.Comment;
+import com.example.nasa.model.Like;
+import com.example.nasa.service.AuthorSuggestionIndex;
+import com.example.nasa.service.CommentSearchIndex;
+import com.example.nasa.service.LikeLeaderboard;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * H2 in-memory với dữ liệu giống thực tế, dùng chung cho các benchmark trong một fork
+ * Số comment chỉnh bằng -Dbench.comments (mặc định 50000)
+ * Benchmark có @Param queryCache=false chạy với Hibernate cache và CommentCountCache tắt, mọi lần đọc đều tới DB
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    static final int COMMENTS = Integer.getInteger("bench.comments", 50000);
+
+    private static final int DAYS = 365;
+    private static final int AUTHORS = 2000;
+    private static final int SEED_BATCH = 1000;
+    private static final long INDEX_TIMEOUT_MS = 120_000;
+
+    static final String QUERY_CACHE_PARAM = "queryCache";
+
+    private static final String[] WORDS = {
+            "nebula", "galaxy", "telescope", "hubble", "webb", "stars", "cluster", "supernova",
+            "beautiful", "amazing", "colors", "image", "light", "years", "away", "dust", "spiral",
+            "comet", "aurora", "moon", "eclipse", "planet", "saturn", "jupiter", "rings", "wow"
+    };
+
+    private AnnotationConfigApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) throws InterruptedException {
+        // Mỗi tổ hợp param chạy trong fork riêng nên system property không ảnh hưởng benchmark khác
+        if (params.getParamsKeys().contains(QUERY_CACHE_PARAM)
+                && !Boolean.parseBoolean(params.getParam(QUERY_CACHE_PARAM))) {
+            System.setProperty("hibernate.cache.enabled", "false");
+            System.setProperty("comments.count-cache.ttl-seconds", "0");
+        }
+
+        // Seed trước khi boot context đầy đủ để các index in-memory được build từ dữ liệu đã có
+        try (AnnotationConfigApplicationContext schema = new AnnotationConfigApplicationContext(HibernateConfig.class)) {
+            seed(schema.getBean(SessionFactory.class));
+        }
+
+        context = new AnnotationConfigApplicationContext(BenchmarkConfig.class);
+        awaitReady("like leaderboard", context.getBean(LikeLeaderboard.class)::isReady);
+        awaitReady("search index", context.getBean(CommentSearchIndex.class)::isReady);
+        awaitReady("author suggestions", context.getBean(AuthorSuggestionIndex.class)::isReady);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Comment phân bố đều trên 365 ngày, độ dài nội dung và số like lệch (ít comment có rất nhiều like)
+     */
+    private static void seed(SessionFactory sessionFactory) {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDate.now().minusDays(DAYS - 1).atStartOfDay();
+        long likesInserted = 0;
+
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Number existing = (Number) session.createQuery("SELECT COUNT(c) FROM Comment c").uniqueResult();
+            if (existing != null && existing.longValue() > 0) {
+                return;
+            }
+
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < COMMENTS; i++) {
+                LocalDateTime createdAt = start.plusSeconds((long) i * DAYS * 86400 / COMMENTS);
+                Comment comment = new Comment("author" + random.nextInt(AUTHORS), 1 + random.nextInt(5),
+                        text(random));
+                comment.setCreatedAt(createdAt);
+                comment.setCommentDate(createdAt.toLocalDate());
+                if (random.nextInt(10) == 0) {
+                    comment.setImagePath(String.format("%064x.jpg", i));
+                }
+                // Phân bố lệch: phần lớn 0-2 like, vài comment hàng trăm like
+                int likes = (int) Math.min(500, Math.floor(Math.pow(random.nextDouble(), 6) * 500));
+                comment.setLikeCount(likes);
+                session.insert(comment);
+
+                for (int l = 0; l < likes; l++) {
+                    session.insert(new Like(comment, "10." + (l >> 16 & 0xff) + "." + (l >> 8 & 0xff) + "." + (l & 0xff)));
+                }
+                likesInserted += likes;
+
+                if ((i + 1) % SEED_BATCH == 0) {
+                    transaction.commit();
+                    transaction = session.beginTransaction();
+                }
+            }
+            transaction.commit();
+        }
+        System.out.printf("Seeded %d comments, %d likes%n", COMMENTS, likesInserted);
+    }
+
+    private static String text(Random random) {
+        int words = 5 + (int) (Math.abs(random.nextGaussian()) * 30);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static void awaitReady(String name, BooleanSupplier ready) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + INDEX_TIMEOUT_MS;
+        while (!ready.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(name + " was not built within " + INDEX_TIMEOUT_MS + " ms");
+            }
+            Thread.sleep(100);
+        }
+    }
+}
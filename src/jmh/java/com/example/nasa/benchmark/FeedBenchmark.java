@@ -0,0 +1,80 @@
+package com.example.nasa.benchmark;
+
+import com.example.nasa.model.CommentSummary;
+import com.example.nasa.model.Page;
+import com.example.nasa.model.Pageable;
+import com.example.nasa.service.CommentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Các đường đọc của feed: offset vs keyset ở trang sâu, sort theo like
+ * Đi qua CommentService như controller (gồm cả overlay số like)
+ * queryCache=true đo đường đọc thực tế (trang lặp lại trúng query cache, total lấy từ CommentCountCache),
+ * queryCache=false để so sánh chi phí SQL của OFFSET và keyset
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    // Trang 0 là trang đầu, các trang sau để thấy chi phí OFFSET tăng theo độ sâu
+    @Param({"0", "100", "1000"})
+    public int page;
+
+    // Đọc bởi BenchmarkDatabase trước khi dựng context
+    @Param({"true", "false"})
+    public boolean queryCache;
+
+    private CommentService commentService;
+
+    // Cursor trỏ tới cùng vị trí với trang offset `page`
+    private String cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase database) {
+        commentService = database.bean(CommentService.class);
+
+        cursor = "";
+        for (int i = 0; i < page; i++) {
+            Page<CommentSummary> current = commentService.getAllCommentsWithCursor(
+                    Pageable.ofCursor(cursor, PAGE_SIZE, "createdAt", "DESC"));
+            if (current.getNextCursor() == null) {
+                break;
+            }
+            cursor = current.getNextCursor();
+        }
+    }
+
+    @Benchmark
+    public Page<CommentSummary> offsetPage() {
+        return commentService.getAllCommentsWithPagination(new Pageable(page, PAGE_SIZE, "createdAt", "DESC"));
+    }
+
+    @Benchmark
+    public Page<CommentSummary> keysetPage() {
+        return commentService.getAllCommentsWithCursor(Pageable.ofCursor(cursor, PAGE_SIZE, "createdAt", "DESC"));
+    }
+
+    @Benchmark
+    public Page<CommentSummary> sortedByLikes() {
+        return commentService.getCommentsSortedByLikes(new Pageable(page, PAGE_SIZE, "likes", "DESC"));
+    }
+}
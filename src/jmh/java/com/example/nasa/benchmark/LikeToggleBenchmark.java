@@ -0,0 +1,50 @@
+package com.example.nasa.benchmark;
+
+import com.example.nasa.model.LikeToggleResult;
+import com.example.nasa.service.LikeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Like/unlike ngẫu nhiên trên toàn bộ comment, nhiều thread cùng lúc
+ * Mỗi toggle đảo trạng thái nên số like không trôi dần theo thời gian chạy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LikeToggleBenchmark {
+
+    private static final int USERS = 1000;
+
+    private LikeService likeService;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase database) {
+        likeService = database.bean(LikeService.class);
+    }
+
+    @Benchmark
+    public LikeToggleResult toggleLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long commentId = 1 + random.nextInt(BenchmarkDatabase.COMMENTS);
+        int user = random.nextInt(USERS);
+        return likeService.toggleLike(commentId, "192.168." + (user >> 8) + "." + (user & 0xff));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.nasa.benchmark;
+
+import com.example.nasa.model.CommentSummary;
+import com.example.nasa.model.Page;
+import com.example.nasa.model.Pageable;
+import com.example.nasa.service.CommentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search comment (index in-memory khi đã build, ngược lại LIKE trên DB)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    // Một từ phổ biến, hai từ, và từ không có trong dữ liệu
+    @Param({"nebula", "hubble webb", "quasar"})
+    public String searchTerm;
+
+    private CommentService commentService;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase database) {
+        commentService = database.bean(CommentService.class);
+    }
+
+    @Benchmark
+    public Page<CommentSummary> search() {
+        return commentService.searchCommentsWithPagination(searchTerm,
+                new Pageable(0, PAGE_SIZE, "createdAt", "DESC"));
+    }
+}
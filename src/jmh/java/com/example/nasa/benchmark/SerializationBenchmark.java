@@ -0,0 +1,61 @@
+package com.example.nasa.benchmark;
+
+import com.example.nasa.model.CommentSummary;
+import com.example.nasa.model.Page;
+import com.example.nasa.model.Pageable;
+import com.example.nasa.service.CommentService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialize response của GET /api/comments với ObjectMapper cấu hình như Spring MVC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "50"})
+    public int pageSize;
+
+    // Giống MappingJackson2HttpMessageConverter mặc định (JavaTimeModule, ngày dạng ISO)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private Map<String, Object> response;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase database) {
+        Page<CommentSummary> page = database.bean(CommentService.class)
+                .getAllCommentsWithPagination(new Pageable(0, pageSize, "createdAt", "DESC"));
+
+        response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", page);
+        response.put("message", "Comments loaded successfully");
+    }
+
+    @Benchmark
+    public byte[] commentsResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.nasa.loadtest;
+
+import com.example.nasa.config.WebInit;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.springframework.web.SpringServletContainerInitializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Tomcat embedded chạy WAR từ src/main/webapp với WebInit, giống khi deploy
+ */
+class EmbeddedServer {
+
+    private final Tomcat tomcat = new Tomcat();
+
+    private int port;
+
+    void start(int requestedPort, int maxThreads) throws LifecycleException, IOException {
+        Path baseDir = Files.createDirectories(new File("build/loadtest/tomcat").toPath());
+        tomcat.setBaseDir(baseDir.toAbsolutePath().toString());
+
+        Connector connector = new Connector("HTTP/1.1");
+        connector.setPort(requestedPort);
+        connector.setProperty("maxThreads", String.valueOf(maxThreads));
+        connector.setProperty("acceptCount", "1000");
+        tomcat.setConnector(connector);
+
+        String docBase = new File("src/main/webapp").getAbsolutePath();
+        Context context = tomcat.addContext("", docBase);
+        // Không dùng web.xml mặc định của Tomcat (cần Jasper): khai báo MIME cho ảnh upload
+        context.addMimeMapping("jpg", "image/jpeg");
+        context.addMimeMapping("png", "image/png");
+        context.addMimeMapping("gif", "image/gif");
+        context.addMimeMapping("webp", "image/webp");
+        context.addServletContainerInitializer(new SpringServletContainerInitializer(),
+                Collections.singleton(WebInit.class));
+
+        tomcat.start();
+        port = connector.getLocalPort();
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    void stop() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
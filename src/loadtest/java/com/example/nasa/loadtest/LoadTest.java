@@ -0,0 +1,242 @@
+package com.example.nasa.loadtest;
+
+import com.example.nasa.model.Apod;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test end-to-end: chạy app trong Tomcat embedded, bắn traffic hỗn hợp với tốc độ đến cố định
+ * Latency tính từ thời điểm request lẽ ra được gửi (không phải lúc thực sự gửi) nên không bị coordinated omission
+ *
+ * Cấu hình bằng system property (./gradlew loadTest -Dload.rate=300 ...):
+ * load.rate (req/s), load.duration / load.warmup (giây), load.mix, load.workers, load.seed-comments,
+ * load.image-ratio, load.port (0 = ngẫu nhiên), load.tomcat-threads
+ */
+public class LoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("load.rate", 200);
+        int durationSeconds = Integer.getInteger("load.duration", 60);
+        int warmupSeconds = Integer.getInteger("load.warmup", 15);
+        int workers = Integer.getInteger("load.workers", 256);
+        int seedComments = Integer.getInteger("load.seed-comments", 1000);
+        int port = Integer.getInteger("load.port", 0);
+        int tomcatThreads = Integer.getInteger("load.tomcat-threads", 200);
+        double imageRatio = Double.parseDouble(System.getProperty("load.image-ratio", "0.3"));
+        String mix = System.getProperty("load.mix", "index:10,comments:50,suggestions:20,like:15,add:5");
+        Path reportDir = Paths.get(System.getProperty("load.report-dir", "build/reports/loadtest"));
+
+        // HttpURLConnection mặc định chỉ giữ 5 connection keep-alive cho mỗi host
+        System.setProperty("http.maxConnections", String.valueOf(workers));
+
+        seedApodCache();
+
+        EmbeddedServer server = new EmbeddedServer();
+        server.start(port, tomcatThreads);
+        String baseUrl = "http://localhost:" + server.getPort();
+        System.out.println("Application started at " + baseUrl);
+
+        try {
+            Scenario scenario = new Scenario(baseUrl, mix, imageRatio);
+            seed(scenario, seedComments);
+            scenario.setCommentIds(fetchCommentIds(baseUrl));
+
+            Map<Scenario.Endpoint, EndpointStats> stats = run(scenario, rate, warmupSeconds, durationSeconds, workers);
+            report(stats, rate, durationSeconds, mix, reportDir);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Phát request theo lịch cố định (rate req/s); nếu app chậm, request xếp hàng và độ trễ được tính đủ
+     */
+    private static Map<Scenario.Endpoint, EndpointStats> run(Scenario scenario, int rate, int warmupSeconds,
+                                                             int durationSeconds, int workers)
+            throws InterruptedException {
+        Map<Scenario.Endpoint, EndpointStats> stats = new EnumMap<>(Scenario.Endpoint.class);
+        for (Scenario.Endpoint endpoint : Scenario.Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "load-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        System.out.printf("Running %d req/s: %d s warmup, %d s measured%n", rate, warmupSeconds, durationSeconds);
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Scenario.Endpoint endpoint = scenario.next();
+            boolean measured = intended >= measureFrom;
+            executor.execute(() -> {
+                boolean success;
+                try {
+                    success = scenario.execute(endpoint);
+                } catch (IOException | RuntimeException e) {
+                    success = false;
+                }
+                if (measured) {
+                    stats.get(endpoint).record(System.nanoTime() - intended, success);
+                }
+            });
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.MINUTES)) {
+            System.err.println("Requests still outstanding after 5 minutes, reporting partial results");
+            executor.shutdownNow();
+        }
+        return stats;
+    }
+
+    private static void report(Map<Scenario.Endpoint, EndpointStats> stats, int rate, int durationSeconds,
+                               String mix, Path reportDir) throws IOException {
+        Files.createDirectories(reportDir);
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.ROOT, "Target rate %d req/s for %d s, mix %s%n%n", rate, durationSeconds, mix));
+        summary.append(String.format(Locale.ROOT, "%-32s %9s %8s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<Scenario.Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpointStats = entry.getValue();
+            Histogram histogram = endpointStats.histogram;
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            summary.append(row(entry.getKey().label, histogram, endpointStats.errors.get()));
+            total.add(histogram);
+            totalErrors += endpointStats.errors.get();
+
+            try (PrintStream out = new PrintStream(reportDir.resolve(entry.getKey().key + ".hgrm").toFile(), "UTF-8")) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        summary.append(row("TOTAL", total, totalErrors));
+        summary.append(String.format(Locale.ROOT, "%nAchieved %.1f req/s%n", (double) total.getTotalCount() / durationSeconds));
+
+        System.out.println();
+        System.out.print(summary);
+        Files.write(reportDir.resolve("summary.txt"), summary.toString().getBytes("UTF-8"));
+        try (PrintStream out = new PrintStream(reportDir.resolve("total.hgrm").toFile(), "UTF-8")) {
+            total.outputPercentileDistribution(out, 1000.0);
+        }
+        System.out.println("Histograms written to " + reportDir.toAbsolutePath());
+    }
+
+    private static String row(String label, Histogram histogram, long errors) {
+        return String.format(Locale.ROOT, "%-32s %9d %8d %10.2f %10.2f %10.2f %10.2f%n",
+                label, histogram.getTotalCount(), errors,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Tạo dữ liệu ban đầu qua chính form /comment/add (gồm cả upload ảnh)
+     */
+    private static void seed(Scenario scenario, int comments) throws IOException {
+        Random random = new Random(11);
+        int failed = 0;
+        for (int i = 0; i < comments; i++) {
+            if (scenario.addComment(random) != 302) {
+                failed++;
+            }
+        }
+        System.out.printf("Seeded %d comments (%d failed)%n", comments - failed, failed);
+    }
+
+    /**
+     * Id của các comment hiện có, dùng cho request like
+     */
+    private static long[] fetchCommentIds(String baseUrl) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Long> ids = new ArrayList<>();
+        for (int page = 0; page < 50; page++) {
+            JsonNode content;
+            try (InputStream in = new URL(baseUrl + "/api/comments?filter=all&size=100&page=" + page).openStream()) {
+                content = objectMapper.readTree(in).path("data").path("content");
+            }
+            if (!content.isArray() || content.size() == 0) {
+                break;
+            }
+            for (JsonNode comment : content) {
+                ids.add(comment.path("id").asLong());
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * APOD hôm nay được ghi sẵn vào cache trên đĩa: trang chủ không gọi NASA API trong lúc đo
+     */
+    private static void seedApodCache() throws IOException {
+        Path cacheDir = Paths.get("build/loadtest/apod-cache");
+        Files.createDirectories(cacheDir);
+        LocalDate today = LocalDate.now(ZoneId.of("America/New_York"));
+        Apod apod = new Apod();
+        apod.setDate(today.toString());
+        apod.setTitle("Load test");
+        apod.setExplanation("Placeholder APOD used by the load test harness.");
+        apod.setUrl("https://apod.nasa.gov/apod/image/placeholder.jpg");
+        apod.setMediaType("image");
+        new ObjectMapper().writeValue(cacheDir.resolve(today + ".json").toFile(), apod);
+    }
+
+    private static final class EndpointStats {
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long latencyNanos, boolean success) {
+            histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+            if (!success) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.nasa.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Các loại request trong traffic mix và cách gửi chúng
+ * Mix dạng "index:10,comments:50,suggestions:20,like:15,add:5" (trọng số tương đối)
+ */
+class Scenario {
+
+    enum Endpoint {
+        INDEX("index", "GET /"),
+        COMMENTS("comments", "GET /api/comments"),
+        SUGGESTIONS("suggestions", "GET /api/search/suggestions"),
+        LIKE("like", "POST /api/comments/{id}/like"),
+        ADD("add", "POST /comment/add");
+
+        final String key;
+        final String label;
+
+        Endpoint(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+    }
+
+    private static final String[] WORDS = {
+            "nebula", "galaxy", "telescope", "hubble", "webb", "stars", "cluster", "supernova",
+            "beautiful", "amazing", "colors", "image", "light", "years", "dust", "spiral", "comet"
+    };
+
+    private static final int IMAGE_POOL = 50;
+
+    private final String baseUrl;
+    private final Endpoint[] weighted;
+    private final double imageRatio;
+    private final List<byte[]> images = new ArrayList<>();
+    private volatile long[] commentIds = new long[0];
+
+    Scenario(String baseUrl, String mix, double imageRatio) throws IOException {
+        this.baseUrl = baseUrl;
+        this.weighted = parseMix(mix);
+        this.imageRatio = imageRatio;
+
+        Random random = new Random(7);
+        for (int i = 0; i < IMAGE_POOL; i++) {
+            images.add(jpeg(random));
+        }
+    }
+
+    Endpoint next() {
+        return weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+    }
+
+    void setCommentIds(long[] commentIds) {
+        this.commentIds = commentIds;
+    }
+
+    /**
+     * Gửi một request; true nếu status là thành công với endpoint đó
+     */
+    boolean execute(Endpoint endpoint) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (endpoint) {
+            case INDEX:
+                return get("/?filter=all&page=" + random.nextInt(5)) == 200;
+            case COMMENTS:
+                return get("/api/comments?filter=all&size=10&page=" + random.nextInt(10)) == 200;
+            case SUGGESTIONS:
+                String word = WORDS[random.nextInt(WORDS.length)];
+                return get("/api/search/suggestions?query=" + word.substring(0, 2 + random.nextInt(3))) == 200;
+            case LIKE:
+                long[] ids = commentIds;
+                if (ids.length == 0) {
+                    return get("/api/comments?filter=all&size=10") == 200;
+                }
+                return post("/api/comments/" + ids[random.nextInt(ids.length)] + "/like", randomIp(random)) == 200;
+            case ADD:
+            default:
+                // Thành công là redirect về trang chủ; 200 nghĩa là form bị trả lại vì lỗi validation
+                return addComment(random) == 302;
+        }
+    }
+
+    int addComment(Random random) throws IOException {
+        String boundary = "----loadtest" + Long.toHexString(random.nextLong());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        field(body, boundary, "authorName", "author" + random.nextInt(500));
+        field(body, boundary, "rating", String.valueOf(1 + random.nextInt(5)));
+        field(body, boundary, "commentText", text(random));
+        if (random.nextDouble() < imageRatio) {
+            byte[] image = images.get(random.nextInt(images.size()));
+            body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"imageFile\"; filename=\"photo.jpg\"\r\n"
+                    + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.write(image);
+            body.write("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        body.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpURLConnection connection = open("/comment/add", "POST");
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        connection.setRequestProperty("X-Forwarded-For", randomIp(random));
+        connection.setFixedLengthStreamingMode(body.size());
+        try (OutputStream out = connection.getOutputStream()) {
+            body.writeTo(out);
+        }
+        return complete(connection);
+    }
+
+    private int get(String path) throws IOException {
+        return complete(open(path, "GET"));
+    }
+
+    private int post(String path, String clientIp) throws IOException {
+        HttpURLConnection connection = open(path, "POST");
+        connection.setRequestProperty("X-Forwarded-For", clientIp);
+        connection.setFixedLengthStreamingMode(0);
+        connection.getOutputStream().close();
+        return complete(connection);
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(10_000);
+        connection.setReadTimeout(60_000);
+        connection.setDoOutput("POST".equals(method));
+        return connection;
+    }
+
+    /**
+     * Đọc hết body để connection được dùng lại (keep-alive)
+     */
+    private static int complete(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null) {
+            try (InputStream body = in) {
+                byte[] buffer = new byte[16 * 1024];
+                while (body.read(buffer) != -1) {
+                    // Bỏ qua nội dung
+                }
+            }
+        }
+        return status;
+    }
+
+    private static void field(ByteArrayOutputStream body, String boundary, String name, String value) throws IOException {
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(Random random) {
+        int words = 4 + random.nextInt(40);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String randomIp(Random random) {
+        return "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + (1 + random.nextInt(254));
+    }
+
+    /**
+     * Ảnh JPEG 1600x1200 với các khối màu ngẫu nhiên (đủ lớn để tạo cả ba variant)
+     */
+    private static byte[] jpeg(Random random) throws IOException {
+        BufferedImage image = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            for (int i = 0; i < 40; i++) {
+                graphics.setColor(new Color(random.nextInt(0xffffff)));
+                graphics.fillRect(random.nextInt(1600), random.nextInt(1200), 50 + random.nextInt(400), 50 + random.nextInt(300));
+            }
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    private static Endpoint[] parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Endpoint endpoint = null;
+            for (Endpoint candidate : Endpoint.values()) {
+                if (candidate.key.equals(parts[0].trim())) {
+                    endpoint = candidate;
+                }
+            }
+            if (endpoint == null || parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            weights.put(endpoint, Integer.parseInt(parts[1].trim()));
+        }
+        List<Endpoint> weighted = new ArrayList<>();
+        for (Map.Entry<Endpoint, Integer> weight : weights.entrySet()) {
+            for (int i = 0; i < weight.getValue(); i++) {
+                weighted.add(weight.getKey());
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Traffic mix is empty: " + mix);
+        }
+        return weighted.toArray(new Endpoint[0]);
+    }
+}
@@ -40,6 +40,15 @@ public class HibernateConfig {
     @Value("${hibernate.hbm2ddl.auto}")
     private String hibernateHbm2ddlAuto;
 
+    @Value("${hibernate.cache.enabled:true}")
+    private boolean hibernateCacheEnabled;
+
+    @Value("${hibernate.cache.config:ehcache.xml}")
+    private String hibernateCacheConfig;
+
+    @Value("${hibernate.statistics.enabled:true}")
+    private String hibernateStatisticsEnabled;
+
     /**
      * Cấu hình DataSource sử dụng HikariCP Connection Pool
      * HikariCP là connection pool nhanh nhất và được khuyến nghị
@@ -61,6 +70,11 @@ public class HibernateConfig {
         config.setAutoCommit(true);             // Auto commit cho non-transactional queries
         config.setPoolName("NASA-APOD-HikariCP");
 
+        // MySQL chỉ gộp JDBC batch thành multi-row INSERT khi bật rewriteBatchedStatements
+        if (dbUrl.startsWith("jdbc:mysql:")) {
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
+
         return new HikariDataSource(config);
     }
 
@@ -121,15 +135,28 @@ public class HibernateConfig {
         // Cho phép lazy loading ngay cả khi không có transaction active
         properties.put("hibernate.enable_lazy_load_no_trans", "true");
 
-        // Use second-level cache (optional - tắt mặc định)
-        properties.put("hibernate.cache.use_second_level_cache", "false");
+        // Second-level cache & query cache (Ehcache 3 qua JCache, giới hạn size + TTL trong ehcache.xml)
+        properties.put("hibernate.cache.use_second_level_cache", String.valueOf(hibernateCacheEnabled));
+        properties.put("hibernate.cache.use_query_cache", String.valueOf(hibernateCacheEnabled));
+        if (hibernateCacheEnabled) {
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+            properties.put("hibernate.javax.cache.uri", hibernateCacheConfig);
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+        }
+
+        // Thống kê Hibernate (cache hit/miss, số query...)
+        properties.put("hibernate.generate_statistics", hibernateStatisticsEnabled);
 
-        // Use query cache (optional - tắt mặc định)
-        properties.put("hibernate.cache.use_query_cache", "false");
+        // Đếm statement theo request, phát hiện N+1 và slow query (QueryTracker)
+        properties.put("hibernate.session_factory.statement_inspector", QueryCountingInspector.class.getName());
 
         // JDBC batch size for better performance
         properties.put("hibernate.jdbc.batch_size", "20");
 
+        // Id cấp theo block từ table generator: giá trị trong bảng là id thấp nhất của block tiếp theo
+        properties.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+
         // Order inserts and updates for better batch processing
         properties.put("hibernate.order_inserts", "true");
         properties.put("hibernate.order_updates", "true");
@@ -0,0 +1,44 @@
+package com.example.nasa.config;
+
+import com.example.nasa.service.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Đo thời gian xử lý của từng handler method (ApodController, ApodRestController, UploadController)
+ * Thời điểm bắt đầu lưu dạng long trong request attribute, ghi nhận không cấp phát thêm object
+ * Request async được đo từ lần dispatch đầu tới khi response hoàn tất
+ */
+@Component
+public class MetricsInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = MetricsInterceptor.class.getName() + ".start";
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Request async được dispatch lại sau khi có kết quả: giữ thời điểm bắt đầu của lần dispatch đầu
+        if (handler instanceof HandlerMethod && request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long) || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        long elapsed = System.nanoTime() - (Long) start;
+        boolean error = ex != null || response.getStatus() >= 500;
+        metricsRegistry.handler(((HandlerMethod) handler).getMethod()).record(elapsed, error);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.nasa.config;
+
+import com.example.nasa.service.QueryTracker;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate gọi inspector mỗi khi chuẩn bị một statement: chuyển SQL sang QueryTracker của thread hiện tại
+ * Được Hibernate khởi tạo theo tên class (hibernate.session_factory.statement_inspector), không phải Spring bean
+ */
+public class QueryCountingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryTracker.statementPrepared(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.nasa.config;
+
+import com.example.nasa.service.MetricsRegistry;
+import com.example.nasa.service.QueryTracker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Gắn QueryTracker vào vòng đời request: đếm statement từ preHandle tới khi view render xong
+ * (bao gồm lazy loading trong template nhờ enable_lazy_load_no_trans)
+ * Với request async, scope được tách khỏi thread Tomcat và gắn lại ở lần dispatch kết quả
+ */
+@Component
+public class QueryTrackingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String SCOPE_ATTRIBUTE = QueryTrackingInterceptor.class.getName() + ".scope";
+
+    @Autowired
+    private QueryTracker queryTracker;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        Object suspended = request.getAttribute(SCOPE_ATTRIBUTE);
+        if (suspended instanceof QueryTracker.Scope) {
+            request.removeAttribute(SCOPE_ATTRIBUTE);
+            queryTracker.attach((QueryTracker.Scope) suspended);
+        } else {
+            queryTracker.beginRequest(metricsRegistry.handler(((HandlerMethod) handler).getMethod()).getLabel());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            QueryTracker.Scope scope = queryTracker.detach();
+            if (scope != null) {
+                request.setAttribute(SCOPE_ATTRIBUTE, scope);
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (handler instanceof HandlerMethod) {
+            queryTracker.endRequest();
+        }
+    }
+}
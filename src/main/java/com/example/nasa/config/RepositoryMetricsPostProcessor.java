@@ -0,0 +1,61 @@
+package com.example.nasa.config;
+
+import com.example.nasa.service.LatencyHistogram;
+import com.example.nasa.service.MetricsRegistry;
+import com.example.nasa.service.QueryTracker;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Bọc các bean @Repository bằng proxy đo thời gian từng method public
+ * và báo cho QueryTracker để ghi slow-query log kèm SQL của lời gọi
+ * Repository là class (không có interface) nên dùng proxy CGLIB
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private QueryTracker queryTracker;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> type = bean.getClass();
+        if (AnnotationUtils.findAnnotation(type, Repository.class) == null) {
+            return bean;
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            Method method = invocation.getMethod();
+            if (!Modifier.isPublic(method.getModifiers()) || method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            LatencyHistogram histogram = metricsRegistry.repositoryMethod(method);
+            int mark = queryTracker.beginCall();
+            long start = System.nanoTime();
+            boolean error = true;
+            try {
+                Object result = invocation.proceed();
+                error = false;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                histogram.record(elapsed, error);
+                queryTracker.endCall(method, invocation.getArguments(), mark, elapsed);
+            }
+        });
+        return proxyFactory.getProxy(type.getClassLoader());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.nasa.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật @Scheduled cho các tác vụ nền (flush like, đồng bộ định kỳ...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
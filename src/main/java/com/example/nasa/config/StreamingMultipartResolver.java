@@ -0,0 +1,137 @@
+package com.example.nasa.config;
+
+import com.example.nasa.service.FileStorageService;
+import com.example.nasa.service.StoredMultipartFile;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.DefaultMultipartHttpServletRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parse multipart bằng streaming API của commons-fileupload: part file được ghi thẳng vào store
+ * (kiểm tra kích thước, nhận dạng ảnh và tính hash trong cùng một lần đọc), không spool ra thư mục tạm
+ * File đã lưu nhưng không được comment nào tham chiếu bị xóa khi request kết thúc
+ */
+public class StreamingMultipartResolver implements MultipartResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingMultipartResolver.class);
+
+    private static final String DEFAULT_ENCODING = "UTF-8";
+
+    private static final long MAX_PARTS = 50;
+
+    private final FileStorageService fileStorageService;
+
+    private final long maxFileSize;
+
+    private final long maxRequestSize;
+
+    public StreamingMultipartResolver(FileStorageService fileStorageService, long maxFileSize, long maxRequestSize) {
+        this.fileStorageService = fileStorageService;
+        this.maxFileSize = maxFileSize;
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    @Override
+    public boolean isMultipart(HttpServletRequest request) {
+        return ServletFileUpload.isMultipartContent(request);
+    }
+
+    @Override
+    public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException {
+        String encoding = request.getCharacterEncoding() != null ? request.getCharacterEncoding() : DEFAULT_ENCODING;
+        ServletFileUpload upload = new ServletFileUpload();
+        upload.setFileSizeMax(maxFileSize);
+        upload.setSizeMax(maxRequestSize);
+        upload.setFileCountMax(MAX_PARTS);
+        upload.setHeaderEncoding(encoding);
+
+        MultiValueMap<String, MultipartFile> files = new LinkedMultiValueMap<>();
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        Map<String, String> parameterContentTypes = new HashMap<>();
+        try {
+            FileItemIterator items = upload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                try (InputStream in = item.openStream()) {
+                    if (item.isFormField()) {
+                        String value = Streams.asString(in, encoding);
+                        parameters.merge(item.getFieldName(), new String[]{value}, StreamingMultipartResolver::concat);
+                        parameterContentTypes.put(item.getFieldName(), item.getContentType());
+                    } else {
+                        files.add(item.getFieldName(),
+                                fileStorageService.storeUpload(item.getFieldName(), item.getName(), in));
+                    }
+                }
+            }
+        } catch (FileUploadBase.SizeLimitExceededException e) {
+            release(files);
+            throw new MaxUploadSizeExceededException(maxRequestSize, e);
+        } catch (FileUploadBase.FileUploadIOException e) {
+            // Vượt giới hạn trong lúc đọc part: file tạm đã bị xóa, bỏ các part đã lưu
+            release(files);
+            if (e.getCause() instanceof FileUploadBase.FileSizeLimitExceededException) {
+                throw new MaxUploadSizeExceededException(maxFileSize, e);
+            }
+            throw new MaxUploadSizeExceededException(maxRequestSize, e);
+        } catch (FileUploadException | IOException e) {
+            release(files);
+            throw new MultipartException("Failed to parse multipart request", e);
+        }
+        return new DefaultMultipartHttpServletRequest(request, files, parameters, parameterContentTypes);
+    }
+
+    @Override
+    public void cleanupMultipart(MultipartHttpServletRequest request) {
+        release(request.getMultiFileMap());
+    }
+
+    /**
+     * Xóa các file đã lưu mà không có comment nào tham chiếu (request lỗi hoặc comment không được lưu)
+     */
+    private void release(MultiValueMap<String, MultipartFile> files) {
+        for (List<MultipartFile> parts : files.values()) {
+            for (MultipartFile part : parts) {
+                if (!(part instanceof StoredMultipartFile)) {
+                    continue;
+                }
+                String storedPath = ((StoredMultipartFile) part).getStoredPathOrNull();
+                if (storedPath == null) {
+                    continue;
+                }
+                try {
+                    fileStorageService.deleteFile(storedPath);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not release upload {}: {}", storedPath, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static String[] concat(String[] existing, String[] added) {
+        String[] values = Arrays.copyOf(existing, existing.length + added.length);
+        System.arraycopy(added, 0, values, existing.length, added.length);
+        return values;
+    }
+}
@@ -1,13 +1,18 @@
 package com.example.nasa.config;
 
+import com.example.nasa.service.ApiExecutor;
+import com.example.nasa.service.FileStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
-import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewResolverRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -22,8 +27,24 @@ import org.thymeleaf.templatemode.TemplateMode;
 @PropertySource("classpath:application.properties")
 public class WebConfig implements WebMvcConfigurer {
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    @Value("${upload.max-file-size:5242880}") // 5MB
+    private long maxFileSize;
+
+    @Value("${upload.max-request-size:20971520}") // 20MB
+    private long maxRequestSize;
+
+    // Bật trong production (templates.cacheable=true): template chỉ được parse một lần
+    @Value("${templates.cacheable:false}")
+    private boolean templatesCacheable;
+
+    @Autowired
+    private MetricsInterceptor metricsInterceptor;
+
+    @Autowired
+    private QueryTrackingInterceptor queryTrackingInterceptor;
+
+    @Autowired
+    private ApiExecutor apiExecutor;
 
     @Bean
     public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
@@ -38,7 +59,7 @@ public class WebConfig implements WebMvcConfigurer {
         templateResolver.setSuffix(".html");
         templateResolver.setTemplateMode(TemplateMode.HTML);
         templateResolver.setCharacterEncoding("UTF-8");
-        templateResolver.setCacheable(false); // Set to true in production
+        templateResolver.setCacheable(templatesCacheable);
         return templateResolver;
     }
 
@@ -73,14 +94,10 @@ public class WebConfig implements WebMvcConfigurer {
         registry.viewResolver(resolver);
     }
 
-    // Multipart Resolver for file upload
+    // Multipart Resolver for file upload: stream thẳng vào FileStorageService, không spool ra tmpdir
     @Bean(name = "multipartResolver")
-    public CommonsMultipartResolver multipartResolver() {
-        CommonsMultipartResolver multipartResolver = new CommonsMultipartResolver();
-        multipartResolver.setMaxUploadSize(5242880); // 5MB
-        multipartResolver.setMaxUploadSizePerFile(5242880); // 5MB per file
-        multipartResolver.setDefaultEncoding("UTF-8");
-        return multipartResolver;
+    public MultipartResolver multipartResolver(FileStorageService fileStorageService) {
+        return new StreamingMultipartResolver(fileStorageService, maxFileSize, maxRequestSize);
     }
 
     // Configure static resource handlers
@@ -90,8 +107,19 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/static/**")
                 .addResourceLocations("/WEB-INF/static/");
 
-        // Serve uploaded files
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadDir + "/");
+        // File upload được phục vụ bởi UploadController (ETag, Range, sendfile)
+    }
+
+    // Đo thời gian từng handler cho /api/metrics, đếm statement SQL theo request
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(metricsInterceptor);
+        registry.addInterceptor(queryTrackingInterceptor);
+    }
+
+    // Request async của /api/** (CompletableFuture): quá timeout thì trả 503 thay vì giữ kết nối
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(apiExecutor.getTimeoutMillis());
     }
 }
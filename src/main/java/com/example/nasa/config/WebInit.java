@@ -4,8 +4,6 @@ import org.springframework.web.filter.CharacterEncodingFilter;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
 import javax.servlet.Filter;
-import javax.servlet.MultipartConfigElement;
-import javax.servlet.ServletRegistration;
 
 public class WebInit extends AbstractAnnotationConfigDispatcherServletInitializer {
 
@@ -32,18 +30,6 @@ public class WebInit extends AbstractAnnotationConfigDispatcherServletInitialize
         return new Filter[]{characterEncodingFilter};
     }
 
-    @Override
-    protected void customizeRegistration(ServletRegistration.Dynamic registration) {
-        // Configure multipart for file upload
-        String uploadLocation = System.getProperty("java.io.tmpdir");
-        long maxFileSize = 5242880; // 5MB
-        long maxRequestSize = 20971520; // 20MB
-        int fileSizeThreshold = 1048576; // 1MB
-
-        MultipartConfigElement multipartConfig = new MultipartConfigElement(
-                uploadLocation, maxFileSize, maxRequestSize, fileSizeThreshold
-        );
-
-        registration.setMultipartConfig(multipartConfig);
-    }
+    // Không đăng ký MultipartConfigElement: multipart do StreamingMultipartResolver xử lý (giới hạn trong WebConfig),
+    // container không spool request ra java.io.tmpdir
 }
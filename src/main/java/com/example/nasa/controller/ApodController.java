@@ -1,26 +1,36 @@
 package com.example.nasa.controller;
 
+import com.example.nasa.model.Apod;
 import com.example.nasa.model.Comment;
+import com.example.nasa.model.CommentSummary;
 import com.example.nasa.model.Page;
 import com.example.nasa.model.Pageable;
+import com.example.nasa.service.ApodService;
+import com.example.nasa.service.ChangeVersion;
 import com.example.nasa.service.CommentService;
 import com.example.nasa.service.FileStorageService;
+import com.example.nasa.service.ImageVariantService;
 import com.example.nasa.service.LikeService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.support.RequestContextUtils;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/")
@@ -35,11 +45,14 @@ public class ApodController {
     @Autowired
     private FileStorageService fileStorageService;
 
-    @Value("${nasa.api.key}")
-    private String nasaApiKey;
+    @Autowired
+    private ApodService apodService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
 
-    @Value("${nasa.api.url}")
-    private String nasaApiUrl;
+    @Autowired
+    private ChangeVersion changeVersion;
 
     // Home page - Display APOD and comments
     @GetMapping
@@ -49,7 +62,21 @@ public class ApodController {
             @RequestParam(value = "sortBy", defaultValue = "createdAt") String sortBy,
             @RequestParam(value = "direction", defaultValue = "DESC") String direction,
             @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
-            @RequestParam(value = "filter", defaultValue = "today") String filter) {
+            @RequestParam(value = "filter", defaultValue = "today") String filter,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+
+        // Trang có flash message (sau khi gửi/like/xóa) luôn được render đầy đủ
+        Map<String, ?> flash = RequestContextUtils.getInputFlashMap(request);
+        if (flash == null || flash.isEmpty()) {
+            // Trạng thái "đã thích" phụ thuộc IP, APOD có thể vừa tải xong sau lần lỗi trước
+            String etag = changeVersion.etag(page, size, sortBy, direction, date, filter,
+                    getClientIP(request), apodService.isCached(apodService.today()));
+            response.setHeader("Cache-Control", "private, no-cache");
+            if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+                return null;
+            }
+        }
 
         ModelAndView mav = new ModelAndView("index");
 
@@ -57,7 +84,7 @@ public class ApodController {
         Pageable pageable = new Pageable(page, size, sortBy, direction);
 
         // Get comments based on filter
-        Page<Comment> commentPage;
+        Page<CommentSummary> commentPage;
 
         switch (filter) {
             case "all":
@@ -90,9 +117,9 @@ public class ApodController {
 
         // Add data to model
         mav.addObject("commentPage", commentPage);
+        mav.addObject("likedStates", getLikedStates(commentPage, request));
         mav.addObject("comment", newComment);
-        mav.addObject("nasaApiKey", nasaApiKey);
-        mav.addObject("nasaApiUrl", nasaApiUrl);
+        mav.addObject("apod", loadApod());
 
         // Add pagination parameters for view
         mav.addObject("currentPage", page);
@@ -123,7 +150,7 @@ public class ApodController {
         if (bindingResult.hasErrors()) {
             // Reload page with errors
             Pageable pageable = new Pageable(page, size, sortBy, direction);
-            Page<Comment> commentPage;
+            Page<CommentSummary> commentPage;
 
             if ("all".equals(filter)) {
                 commentPage = commentService.getAllCommentsWithPagination(pageable);
@@ -132,8 +159,7 @@ public class ApodController {
             }
 
             model.addAttribute("commentPage", commentPage);
-            model.addAttribute("nasaApiKey", nasaApiKey);
-            model.addAttribute("nasaApiUrl", nasaApiUrl);
+            model.addAttribute("apod", loadApod());
             model.addAttribute("currentPage", page);
             model.addAttribute("pageSize", size);
             model.addAttribute("sortBy", sortBy);
@@ -148,6 +174,9 @@ public class ApodController {
             if (imageFile != null && !imageFile.isEmpty()) {
                 String filename = fileStorageService.storeFile(imageFile);
                 comment.setImagePath(filename);
+
+                // Thumbnail + các bản thu nhỏ được tạo nền, feed dùng ảnh gốc cho tới khi xong
+                imageVariantService.generateAsync(filename);
             }
 
             // Save comment
@@ -180,7 +209,7 @@ public class ApodController {
 
         try {
             String userIp = getClientIP(request);
-            boolean liked = likeService.toggleLike(commentId, userIp);
+            boolean liked = likeService.toggleLike(commentId, userIp).isLiked();
 
             if (liked) {
                 redirectAttributes.addFlashAttribute("likeMessage", "Đã thích bình luận!");
@@ -210,13 +239,7 @@ public class ApodController {
             RedirectAttributes redirectAttributes) {
 
         try {
-            Comment comment = commentService.getCommentById(id);
-
-            // Delete associated image file if exists
-            if (comment != null && comment.getImagePath() != null) {
-                fileStorageService.deleteFile(comment.getImagePath());
-            }
-
+            // Ảnh được xóa sau khi commit, nếu không còn comment nào dùng chung nội dung đó
             commentService.deleteComment(id);
             redirectAttributes.addFlashAttribute("successMessage", "Đã xóa bình luận!");
 
@@ -240,6 +263,31 @@ public class ApodController {
         return mav;
     }
 
+    /**
+     * Trạng thái "đã thích" của người dùng cho các comment trong trang, chỉ một lần gọi
+     */
+    private Map<Long, Boolean> getLikedStates(Page<CommentSummary> commentPage, HttpServletRequest request) {
+        List<Long> commentIds = new ArrayList<>();
+        if (commentPage.hasContent()) {
+            for (CommentSummary c : commentPage.getContent()) {
+                commentIds.add(c.getId());
+            }
+        }
+        return likeService.getLikedStates(commentIds, getClientIP(request));
+    }
+
+    /**
+     * Load APOD của hôm nay từ cache phía server
+     * Trả về null nếu NASA API lỗi để trang vẫn render được
+     */
+    private Apod loadApod() {
+        try {
+            return apodService.getTodayApod();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     /**
      * Get client IP address
      */
@@ -1,42 +1,92 @@
 package com.example.nasa.controller;
 
+import com.example.nasa.model.Apod;
 import com.example.nasa.model.Comment;
+import com.example.nasa.model.ImportProgress;
+import com.example.nasa.model.CommentSummary;
+import com.example.nasa.model.LikeToggleResult;
 import com.example.nasa.model.Page;
 import com.example.nasa.model.Pageable;
+import com.example.nasa.model.StatsSnapshot;
+import com.example.nasa.service.ApiExecutor;
+import com.example.nasa.service.ApodService;
+import com.example.nasa.service.CacheStatisticsService;
+import com.example.nasa.service.ChangeVersion;
+import com.example.nasa.service.CommentExportService;
+import com.example.nasa.service.CommentImportService;
 import com.example.nasa.service.CommentService;
 import com.example.nasa.service.LikeService;
+import com.example.nasa.service.MetricsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST API Controller for AJAX requests
  * Returns JSON responses for dynamic content loading
+ * Các endpoint truy cập DB trả về CompletableFuture: phần DB chạy trên ApiExecutor, thread Tomcat được trả lại ngay
  */
 @RestController
 @RequestMapping("/api")
 public class ApodRestController {
 
+    // Client luôn hỏi lại server, nhận 304 nếu dữ liệu không đổi
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private CommentService commentService;
 
     @Autowired
     private LikeService likeService;
 
+    @Autowired
+    private ApodService apodService;
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    private CommentExportService commentExportService;
+
+    @Autowired
+    private CommentImportService commentImportService;
+
+    @Autowired
+    private ChangeVersion changeVersion;
+
+    @Autowired
+    private MetricsService metricsService;
+
+    @Autowired
+    private ApiExecutor apiExecutor;
+
     /**
      * Get paginated comments (AJAX)
      * Returns JSON with comments and pagination metadata
      */
     @GetMapping("/comments")
-    public ResponseEntity<Map<String, Object>> getComments(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getComments(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
             @RequestParam(value = "sortBy", defaultValue = "createdAt") String sortBy,
@@ -44,176 +94,430 @@ public class ApodRestController {
             @RequestParam(value = "filter", defaultValue = "today") String filter,
             @RequestParam(value = "date", required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
-            @RequestParam(value = "search", required = false) String search) {
+            @RequestParam(value = "search", required = false) String search,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest webRequest) {
+
+        // Không có ghi mới kể từ lần poll trước: 304, không truy cập DB
+        if (webRequest.checkNotModified(
+                changeVersion.etag(page, size, sortBy, direction, filter, date, search, cursor))) {
+            return null;
+        }
+
+        return apiExecutor.submit(() -> {
+            try {
+                Pageable pageable = new Pageable(page, size, sortBy, direction);
+                Page<CommentSummary> commentPage;
+
+                // Apply filters
+                if (search != null && !search.trim().isEmpty()) {
+                    // Search functionality
+                    commentPage = commentService.searchCommentsWithPagination(search, pageable);
+                } else if (cursor != null) {
+                    // Keyset pagination - cursor rỗng là trang đầu tiên
+                    pageable = Pageable.ofCursor(cursor, size, sortBy, direction);
+                    if ("all".equals(filter)) {
+                        commentPage = commentService.getAllCommentsWithCursor(pageable);
+                    } else {
+                        LocalDate filterDate = "date".equals(filter) && date != null ? date : LocalDate.now();
+                        commentPage = commentService.getCommentsByDateWithCursor(filterDate, pageable);
+                    }
+                } else {
+                    switch (filter) {
+                        case "all":
+                            if ("likes".equals(sortBy)) {
+                                commentPage = commentService.getCommentsSortedByLikes(pageable);
+                            } else {
+                                commentPage = commentService.getAllCommentsWithPagination(pageable);
+                            }
+                            break;
+                        case "date":
+                            if (date != null) {
+                                commentPage = commentService.getCommentsByDateWithPagination(date, pageable);
+                            } else {
+                                commentPage = commentService.getTodayCommentsWithPagination(pageable);
+                            }
+                            break;
+                        case "today":
+                        default:
+                            commentPage = commentService.getTodayCommentsWithPagination(pageable);
+                            break;
+                    }
+                }
+
+                // Build response
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("data", commentPage);
+                response.put("message", "Comments loaded successfully");
+
+                return ResponseEntity.ok().cacheControl(REVALIDATE).body(response);
+
+            } catch (IllegalArgumentException e) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("message", "Invalid request: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+
+            } catch (Exception e) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("message", "Error loading comments: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            }
+        });
+    }
 
+    /**
+     * Export comments (NDJSON hoặc CSV, tùy chọn gzip)
+     * Dữ liệu được stream thẳng ra response, bộ nhớ không phụ thuộc số lượng comment
+     * Phần đọc DB và ghi response chạy trên pool export của ApiExecutor, không giữ thread Tomcat
+     */
+    @GetMapping("/comments/export")
+    public WebAsyncTask<Void> exportComments(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+
+        CommentExportService.Format exportFormat;
         try {
-            Pageable pageable = new Pageable(page, size, sortBy, direction);
-            Page<Comment> commentPage;
+            exportFormat = CommentExportService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return null;
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "'from' must not be after 'to'");
+            return null;
+        }
+
+        String filename = "comments." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
 
-            // Apply filters
-            if (search != null && !search.trim().isEmpty()) {
-                // Search functionality
-                commentPage = commentService.searchCommentsWithPagination(search, pageable);
+        return apiExecutor.longRunning(() -> {
+            OutputStream out = response.getOutputStream();
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                commentExportService.export(exportFormat, from, to, gzipOut);
+                gzipOut.finish();
             } else {
-                switch (filter) {
-                    case "all":
-                        if ("likes".equals(sortBy)) {
-                            commentPage = commentService.getCommentsSortedByLikes(pageable);
-                        } else {
-                            commentPage = commentService.getAllCommentsWithPagination(pageable);
-                        }
-                        break;
-                    case "date":
-                        if (date != null) {
-                            commentPage = commentService.getCommentsByDateWithPagination(date, pageable);
-                        } else {
-                            commentPage = commentService.getTodayCommentsWithPagination(pageable);
-                        }
-                        break;
-                    case "today":
-                    default:
-                        commentPage = commentService.getTodayCommentsWithPagination(pageable);
-                        break;
-                }
+                commentExportService.export(exportFormat, from, to, out);
             }
+            response.flushBuffer();
+            return null;
+        });
+    }
+
+    /**
+     * Bulk import comments từ NDJSON (request body, hỗ trợ Content-Encoding: gzip)
+     * Trả về 202 khi đã nhận xong body, import chạy nền; tiến độ xem qua /api/comments/import/progress
+     */
+    @PostMapping("/comments/import")
+    public ResponseEntity<Map<String, Object>> importComments(HttpServletRequest request) {
+
+        try {
+            // Kiểm tra trước khi nhận body, tránh upload cả file chỉ để nhận 409
+            if (commentImportService.isRunning()) {
+                throw new IllegalStateException("Another import is already running");
+            }
+            boolean gzip = "gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"));
+            ImportProgress started = commentImportService.startImport(request.getInputStream(), gzip);
 
-            // Build response
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", commentPage);
-            response.put("message", "Comments loaded successfully");
+            response.put("data", started);
+            response.put("message", "Import started");
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create(request.getContextPath() + "/api/comments/import/progress"))
+                    .body(response);
+
+        } catch (IllegalStateException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
 
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
-            errorResponse.put("message", "Error loading comments: " + e.getMessage());
+            errorResponse.put("data", commentImportService.getProgress());
+            errorResponse.put("message", "Error importing comments: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
 
+    /**
+     * Tiến độ của lần import đang chạy hoặc gần nhất
+     */
+    @GetMapping("/comments/import/progress")
+    public ResponseEntity<Map<String, Object>> getImportProgress() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", commentImportService.getProgress());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Toggle like (AJAX)
      * Returns updated like count
      */
     @PostMapping("/comments/{commentId}/like")
-    public ResponseEntity<Map<String, Object>> toggleLike(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> toggleLike(
             @PathVariable("commentId") Long commentId,
             HttpServletRequest request) {
 
-        try {
-            String userIp = getClientIP(request);
-            boolean liked = likeService.toggleLike(commentId, userIp);
+        // Request không được dùng trên thread của executor
+        String userIp = getClientIP(request);
+        return apiExecutor.submit(() -> {
+            try {
+                LikeToggleResult result = likeService.toggleLike(commentId, userIp);
 
-            // Get updated comment to return new like count
-            Comment comment = commentService.getCommentById(commentId);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("liked", result.isLiked());
+                response.put("likeCount", result.getLikeCount());
+                response.put("message", result.isLiked() ? "Liked!" : "Unliked!");
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("liked", liked);
-            response.put("likeCount", comment.getLikeCount());
-            response.put("message", liked ? "Liked!" : "Unliked!");
+                return ResponseEntity.ok(response);
 
-            return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("message", "Error toggling like: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("success", false);
-            errorResponse.put("message", "Error toggling like: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
-        }
+    /**
+     * Liked state của người dùng hiện tại cho nhiều comment (AJAX)
+     */
+    @GetMapping("/likes/state")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getLikedStates(
+            @RequestParam("ids") List<Long> commentIds,
+            HttpServletRequest request) {
+
+        String userIp = getClientIP(request);
+        return apiExecutor.submit(() -> {
+            try {
+                Map<Long, Boolean> states = likeService.getLikedStates(commentIds, userIp);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("data", states);
+
+                return ResponseEntity.ok(response);
+
+            } catch (Exception e) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("message", "Error loading like state: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            }
+        });
+    }
+
+    /**
+     * Like write-behind queue metrics
+     */
+    @GetMapping("/likes/queue")
+    public ResponseEntity<Map<String, Object>> getLikeQueueMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", likeService.getWriteBehindMetrics());
+        return ResponseEntity.ok(response);
     }
 
     /**
      * Delete comment (AJAX)
      */
     @DeleteMapping("/comments/{id}")
-    public ResponseEntity<Map<String, Object>> deleteComment(@PathVariable("id") Long id) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> deleteComment(@PathVariable("id") Long id) {
 
-        try {
-            Comment comment = commentService.getCommentById(id);
+        return apiExecutor.submit(() -> {
+            try {
+                Comment comment = commentService.getCommentById(id);
+
+                if (comment == null) {
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("success", false);
+                    errorResponse.put("message", "Comment not found");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+                }
 
-            if (comment == null) {
+                commentService.deleteComment(id);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", "Comment deleted successfully");
+
+                return ResponseEntity.ok(response);
+
+            } catch (Exception e) {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("success", false);
-                errorResponse.put("message", "Comment not found");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+                errorResponse.put("message", "Error deleting comment: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
             }
+        });
+    }
+
+    /**
+     * Get comment statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats(WebRequest webRequest) {
 
-            commentService.deleteComment(id);
+        // Reconcile có thể sửa snapshot sau lần ghi (vd. xóa leader) mà không bump ChangeVersion
+        if (webRequest.checkNotModified(changeVersion.etag("stats", commentService.getStatsGeneration()))) {
+            return null;
+        }
+
+        try {
+            // Đọc từ snapshot in-memory, không truy cập DB
+            StatsSnapshot snapshot = commentService.getStatsSnapshot();
+
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("totalComments", snapshot.getTotalComments());
+            stats.put("todayComments", snapshot.getTodayComments());
+            stats.put("topRatedComment", snapshot.getTopRatedComment());
+            stats.put("mostLikedComment", snapshot.getMostLikedComment());
+            stats.put("generatedAt", snapshot.getGeneratedAt());
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "Comment deleted successfully");
+            response.put("data", stats);
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(REVALIDATE).body(response);
 
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
-            errorResponse.put("message", "Error deleting comment: " + e.getMessage());
+            errorResponse.put("message", "Error loading stats: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
 
     /**
-     * Get comment statistics
+     * Get APOD metadata (server-side proxy, không lộ API key)
      */
-    @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getStats() {
+    @GetMapping("/apod")
+    public ResponseEntity<Map<String, Object>> getApod(
+            @RequestParam(value = "date", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
 
         try {
-            Long totalComments = commentService.countAllComments();
-            Long todayComments = commentService.countCommentsByDate(LocalDate.now());
-            Comment topRatedComment = commentService.getTopRatedComment();
-            Comment mostLikedComment = commentService.getMostLikedComment();
-
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalComments", totalComments);
-            stats.put("todayComments", todayComments);
-            stats.put("topRatedComment", topRatedComment);
-            stats.put("mostLikedComment", mostLikedComment);
+            Apod apod = apodService.getApod(date != null ? date : apodService.today());
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", stats);
+            response.put("data", apod);
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Invalid request: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
-            errorResponse.put("message", "Error loading stats: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            errorResponse.put("message", "Error loading APOD: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(errorResponse);
         }
     }
 
     /**
-     * Search suggestions (autocomplete)
+     * Hibernate second-level cache & query cache statistics
      */
-    @GetMapping("/search/suggestions")
-    public ResponseEntity<Map<String, Object>> getSearchSuggestions(
-            @RequestParam("query") String query) {
-
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
         try {
-            // Get top 5 matching author names and comment snippets
-            List<String> suggestions = commentService.getSearchSuggestions(query, 5);
-
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("suggestions", suggestions);
-
+            response.put("data", cacheStatisticsService.getCacheStatistics());
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
-            errorResponse.put("message", "Error loading suggestions: " + e.getMessage());
+            errorResponse.put("message", "Error loading cache stats: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
 
+    /**
+     * Metrics ở định dạng text của Prometheus (handler, repository, HikariCP, Hibernate)
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<String> getMetrics() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .contentType(MediaType.parseMediaType(MetricsService.CONTENT_TYPE))
+                .body(metricsService.scrape());
+    }
+
+    /**
+     * Search suggestions (autocomplete)
+     */
+    @GetMapping("/search/suggestions")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getSearchSuggestions(
+            @RequestParam("query") String query) {
+
+        return apiExecutor.submit(() -> {
+            try {
+                // Get top 5 matching author names and comment snippets
+                List<String> suggestions = commentService.getSearchSuggestions(query, 5);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("suggestions", suggestions);
+
+                return ResponseEntity.ok(response);
+
+            } catch (Exception e) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("message", "Error loading suggestions: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            }
+        });
+    }
+
+    /**
+     * Executor của API đã đầy: từ chối ngay, client thử lại sau
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleExecutorSaturated(RejectedExecutionException e) {
+        return serviceUnavailable("Server is busy, please retry");
+    }
+
+    /**
+     * Request async quá api.async.timeout-ms
+     */
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<Map<String, Object>> handleAsyncTimeout(AsyncRequestTimeoutException e) {
+        return serviceUnavailable("Request timed out, please retry");
+    }
+
+    private ResponseEntity<Map<String, Object>> serviceUnavailable(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", message);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .cacheControl(CacheControl.noStore())
+                .body(errorResponse);
+    }
+
     /**
      * Get client IP address
      */
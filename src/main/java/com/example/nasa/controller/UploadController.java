@@ -0,0 +1,257 @@
+package com.example.nasa.controller;
+
+import com.example.nasa.service.FileStorageService;
+import com.example.nasa.service.MappedFileCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Pattern;
+
+/**
+ * Phục vụ ảnh upload: ETag mạnh, Cache-Control immutable, 304, Range
+ * Nội dung được gửi bằng sendfile của Tomcat (zero-copy) khi có, nếu không thì FileChannel.transferTo
+ */
+@Controller
+public class UploadController {
+
+    private static final String PATTERN = "/uploads/**";
+
+    // Tên file không bao giờ được dùng lại cho nội dung khác (hash nội dung hoặc UUID)
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final long[] FULL_CONTENT = new long[0];
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MappedFileCache mappedFileCache;
+
+    @RequestMapping(value = PATTERN, method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serveUpload(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String filename = pathMatcher.extractPathWithinPattern(PATTERN,
+                (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE));
+
+        Path file = resolve(filename);
+        BasicFileAttributes attributes = null;
+        if (file != null) {
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                attributes = null;
+            }
+        }
+        if (attributes == null || !attributes.isRegularFile()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = etagOf(filename, length, lastModified);
+
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Accept-Ranges", "bytes");
+
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        String contentType = request.getServletContext().getMimeType(filename);
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader != null && ifRangeMatches(request, etag)) {
+            long[] range = parseRange(rangeHeader, length);
+            if (range == null) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (range != FULL_CONTENT) {
+                start = range[0];
+                end = range[1];
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        response.setContentLengthLong(end - start + 1);
+
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+        send(request, response, file, length, lastModified, start, end);
+    }
+
+    private void send(HttpServletRequest request, HttpServletResponse response, Path file,
+                      long length, long lastModified, long start, long end) throws IOException {
+        // Tomcat tự gửi file bằng FileChannel.transferTo tới socket sau khi handler trả về
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        if (mappedFileCache.isEnabled()) {
+            ByteBuffer mapped = mappedFileCache.get(file, length, lastModified);
+            if (mapped != null) {
+                mapped.position((int) start);
+                mapped.limit((int) end + 1);
+                while (mapped.hasRemaining()) {
+                    target.write(mapped);
+                }
+                return;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Đường dẫn file trong thư mục upload, null nếu không hợp lệ hoặc là file nội bộ (.tmp...)
+     */
+    private Path resolve(String filename) {
+        if (filename == null || filename.isEmpty()) {
+            return null;
+        }
+        for (String segment : filename.split("/")) {
+            if (segment.isEmpty() || segment.startsWith(".")) {
+                return null;
+            }
+        }
+        try {
+            return fileStorageService.loadFile(filename);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * ETag mạnh: hash nội dung nếu tên file là hash, ngược lại từ kích thước + thời điểm sửa
+     */
+    private static String etagOf(String filename, long length, long lastModified) {
+        String name = filename.substring(filename.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        if (CONTENT_HASH.matcher(base).matches()) {
+            return "\"" + base + "\"";
+        }
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag) {
+        String ifRange = request.getHeader("If-Range");
+        return ifRange == null || ifRange.trim().equals(etag);
+    }
+
+    private static boolean matches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse header Range một khoảng ("bytes=a-b", "bytes=a-", "bytes=-n")
+     * Trả về [start, end], FULL_CONTENT nếu header không dùng được (gửi toàn bộ), null nếu không thỏa mãn được
+     */
+    private static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return FULL_CONTENT;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return FULL_CONTENT;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                String endPart = spec.substring(dash + 1);
+                end = endPart.isEmpty() ? length - 1 : Math.min(Long.parseLong(endPart), length - 1);
+                if (!endPart.isEmpty() && Long.parseLong(endPart) < start) {
+                    return FULL_CONTENT;
+                }
+            }
+            if (start >= length) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return FULL_CONTENT;
+        }
+    }
+}
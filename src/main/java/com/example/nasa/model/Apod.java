@@ -0,0 +1,96 @@
+package com.example.nasa.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Metadata của NASA Astronomy Picture of the Day
+ * Map trực tiếp từ JSON trả về bởi NASA APOD API
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Apod {
+
+    private String date;
+
+    private String title;
+
+    private String explanation;
+
+    private String url;
+
+    @JsonProperty("hdurl")
+    private String hdUrl;
+
+    @JsonProperty("media_type")
+    private String mediaType;
+
+    private String copyright;
+
+    @JsonIgnore
+    public boolean isImage() {
+        return "image".equals(mediaType);
+    }
+
+    @JsonIgnore
+    public boolean isVideo() {
+        return "video".equals(mediaType);
+    }
+
+    // Getters and Setters
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getExplanation() {
+        return explanation;
+    }
+
+    public void setExplanation(String explanation) {
+        this.explanation = explanation;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getHdUrl() {
+        return hdUrl;
+    }
+
+    public void setHdUrl(String hdUrl) {
+        this.hdUrl = hdUrl;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public void setMediaType(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getCopyright() {
+        return copyright;
+    }
+
+    public void setCopyright(String copyright) {
+        this.copyright = copyright;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.nasa.model;
 
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import javax.validation.constraints.*;
 import java.time.LocalDate;
@@ -8,11 +10,23 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "comments")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "comment")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_created_at", columnList = "created_at, id"),
+        @Index(name = "idx_comments_rating", columnList = "rating, id"),
+        @Index(name = "idx_comments_like_count", columnList = "like_count, id"),
+        @Index(name = "idx_comments_date_created_at", columnList = "comment_date, created_at, id"),
+        @Index(name = "idx_comments_image_path", columnList = "image_path")
+})
 public class Comment {
 
+    // Id cấp theo block từ bảng id_generators (pooled-lo) thay vì IDENTITY để Hibernate batch được INSERT
+    // CommentRepository.alignIdGenerator đẩy next_val vượt MAX(id) hiện có khi khởi động
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "comment_id")
+    @TableGenerator(name = "comment_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "comments", allocationSize = 100)
     private Long id;
 
     @NotBlank(message = "Tên không được để trống")
@@ -40,7 +54,13 @@ public class Comment {
     @Column(name = "image_path")
     private String imagePath;
 
-    @OneToMany(mappedBy = "comment", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // Số lượt thích được lưu sẵn, cập nhật bởi LikeService.toggleLike
+    @Column(name = "like_count", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int likeCount;
+
+    // Chỉ load khi thực sự cần, dùng likeCount để hiển thị/sắp xếp
+    @OneToMany(mappedBy = "comment", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "comment-likes")
     private Set<Like> likes = new HashSet<>();
 
     // Constructors
@@ -122,16 +142,24 @@ public class Comment {
     }
 
     public int getLikeCount() {
-        return likes != null ? likes.size() : 0;
+        return likeCount;
+    }
+
+    public void setLikeCount(int likeCount) {
+        this.likeCount = likeCount;
     }
 
     public void addLike(Like like) {
-        likes.add(like);
+        if (likes.add(like)) {
+            likeCount++;
+        }
         like.setComment(this);
     }
 
     public void removeLike(Like like) {
-        likes.remove(like);
+        if (likes.remove(like)) {
+            likeCount = Math.max(0, likeCount - 1);
+        }
         like.setComment(null);
     }
 }
@@ -0,0 +1,92 @@
+package com.example.nasa.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bản sao bất biến các field của Comment, an toàn để giữ lâu trong bộ nhớ và serialize
+ * Cũng là projection cho các trang comment (SELECT new ...), không tạo entity managed và không chạm tới likes
+ */
+public final class CommentSummary {
+    private static final int PREVIEW_LENGTH = 160;
+
+    private final Long id;
+    private final String authorName;
+    private final int rating;
+    private final String commentText;
+    private final LocalDate commentDate;
+    private final LocalDateTime createdAt;
+    private final String imagePath;
+    private final int likeCount;
+
+    public CommentSummary(Long id, String authorName, int rating, String commentText, LocalDate commentDate,
+                          LocalDateTime createdAt, String imagePath, int likeCount) {
+        this.id = id;
+        this.authorName = authorName;
+        this.rating = rating;
+        this.commentText = commentText;
+        this.commentDate = commentDate;
+        this.createdAt = createdAt;
+        this.imagePath = imagePath;
+        this.likeCount = likeCount;
+    }
+
+    public static CommentSummary from(Comment comment) {
+        if (comment == null) {
+            return null;
+        }
+        return new CommentSummary(comment.getId(), comment.getAuthorName(),
+                comment.getRating() != null ? comment.getRating() : 0, comment.getCommentText(),
+                comment.getCommentDate(), comment.getCreatedAt(), comment.getImagePath(), comment.getLikeCount());
+    }
+
+    public CommentSummary withLikeCount(int newLikeCount) {
+        return new CommentSummary(id, authorName, rating, commentText, commentDate, createdAt, imagePath, newLikeCount);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    public String getCommentText() {
+        return commentText;
+    }
+
+    public LocalDate getCommentDate() {
+        return commentDate;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public int getLikeCount() {
+        return likeCount;
+    }
+
+    /**
+     * Đoạn đầu của nội dung, cắt ở khoảng trắng gần nhất
+     */
+    public String getPreview() {
+        if (commentText == null || commentText.length() <= PREVIEW_LENGTH) {
+            return commentText;
+        }
+        int end = commentText.lastIndexOf(' ', PREVIEW_LENGTH);
+        if (end < PREVIEW_LENGTH / 2) {
+            end = PREVIEW_LENGTH;
+        }
+        return commentText.substring(0, end).trim() + "…";
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.nasa.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tiến độ của một lần import comment
+ * Chỉ thread import ghi, các thread khác đọc (qua /api/comments/import/progress)
+ */
+public class ImportProgress {
+
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    private static final int MAX_ERRORS = 20;
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    private volatile State state = State.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile long elapsedNanos;
+    private volatile long linesRead;
+    private volatile long imported;
+    private volatile long rejected;
+    private volatile long chunks;
+    private volatile String failure;
+
+    public void lineRead() {
+        linesRead++;
+    }
+
+    public void reject(long lineNumber, String reason) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    public void chunkCommitted(int size) {
+        imported += size;
+        chunks++;
+    }
+
+    public void complete() {
+        finish(State.COMPLETED);
+    }
+
+    public void fail(String reason) {
+        failure = reason;
+        finish(State.FAILED);
+    }
+
+    private void finish(State finalState) {
+        elapsedNanos = System.nanoTime() - startNanos;
+        finishedAt = LocalDateTime.now();
+        state = finalState;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    public long getElapsedMillis() {
+        long nanos = state == State.RUNNING ? System.nanoTime() - startNanos : elapsedNanos;
+        return nanos / 1_000_000;
+    }
+
+    public long getRowsPerSecond() {
+        long millis = getElapsedMillis();
+        return millis > 0 ? imported * 1000 / millis : 0;
+    }
+}
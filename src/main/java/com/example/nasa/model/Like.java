@@ -1,10 +1,16 @@
 package com.example.nasa.model;
 
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "likes")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "like")
+// Mỗi IP chỉ like một comment một lần; insert dùng INSERT IGNORE dựa trên ràng buộc này
+@Table(name = "likes", uniqueConstraints = @UniqueConstraint(name = "uk_likes_comment_user",
+        columnNames = {"comment_id", "user_ip"}))
 public class Like {
 
     @Id
@@ -0,0 +1,41 @@
+package com.example.nasa.model;
+
+import java.util.Objects;
+
+/**
+ * Định danh một lượt thích: (commentId, userIp)
+ */
+public final class LikeKey {
+    private final Long commentId;
+    private final String userIp;
+
+    public LikeKey(Long commentId, String userIp) {
+        this.commentId = commentId;
+        this.userIp = userIp;
+    }
+
+    public Long getCommentId() {
+        return commentId;
+    }
+
+    public String getUserIp() {
+        return userIp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LikeKey)) {
+            return false;
+        }
+        LikeKey other = (LikeKey) o;
+        return commentId.equals(other.commentId) && Objects.equals(userIp, other.userIp);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * commentId.hashCode() + Objects.hashCode(userIp);
+    }
+}
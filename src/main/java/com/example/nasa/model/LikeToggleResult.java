@@ -0,0 +1,23 @@
+package com.example.nasa.model;
+
+/**
+ * Kết quả của một lần toggle like
+ * Trả về trạng thái mới và số lượt thích hiện tại, không cần load lại Comment
+ */
+public class LikeToggleResult {
+    private final boolean liked;
+    private final int likeCount;
+
+    public LikeToggleResult(boolean liked, int likeCount) {
+        this.liked = liked;
+        this.likeCount = likeCount;
+    }
+
+    public boolean isLiked() {
+        return liked;
+    }
+
+    public int getLikeCount() {
+        return likeCount;
+    }
+}
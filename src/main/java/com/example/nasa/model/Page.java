@@ -8,6 +8,10 @@ public class Page<T> {
     private int pageSize;
     private long totalElements;
     private int totalPages;
+    private boolean totalExact = true;  // false nếu totalElements chỉ là ước lượng
+    private boolean keyset;         // true nếu page được lấy bằng keyset pagination
+    private String nextCursor;      // Cursor tới trang sau (null nếu là trang cuối)
+    private String prevCursor;      // Cursor tới trang trước (null nếu là trang đầu)
 
     public Page() {
     }
@@ -20,25 +24,46 @@ public class Page<T> {
         this.totalPages = (int) Math.ceil((double) totalElements / pageSize);
     }
 
+    public Page(List<T> content, int pageNumber, int pageSize, long totalElements, boolean totalExact) {
+        this(content, pageNumber, pageSize, totalElements);
+        this.totalExact = totalExact;
+    }
+
+    /**
+     * Tạo page cho keyset pagination
+     */
+    public static <T> Page<T> ofKeyset(List<T> content, int pageSize, long totalElements,
+                                       String nextCursor, String prevCursor) {
+        Page<T> page = new Page<>(content, 0, pageSize, totalElements);
+        page.keyset = true;
+        page.nextCursor = nextCursor;
+        page.prevCursor = prevCursor;
+        return page;
+    }
+
     // Helper methods
     public boolean hasContent() {
         return content != null && !content.isEmpty();
     }
 
     public boolean hasPrevious() {
-        return pageNumber > 0;
+        return keyset ? prevCursor != null : pageNumber > 0;
     }
 
     public boolean hasNext() {
-        return pageNumber < totalPages - 1;
+        if (keyset) {
+            return nextCursor != null;
+        }
+        // Tổng ước lượng: có thể còn kết quả sau trang cuối đã biết
+        return pageNumber < totalPages - 1 || (!totalExact && getNumberOfElements() == pageSize);
     }
 
     public boolean isFirst() {
-        return pageNumber == 0;
+        return !hasPrevious();
     }
 
     public boolean isLast() {
-        return pageNumber == totalPages - 1;
+        return !hasNext();
     }
 
     public int getNumberOfElements() {
@@ -85,4 +110,32 @@ public class Page<T> {
     public void setTotalPages(int totalPages) {
         this.totalPages = totalPages;
     }
+
+    public boolean isKeyset() {
+        return keyset;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+
+    public void setPrevCursor(String prevCursor) {
+        this.prevCursor = prevCursor;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    public void setTotalExact(boolean totalExact) {
+        this.totalExact = totalExact;
+    }
 }
@@ -0,0 +1,62 @@
+package com.example.nasa.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor cho keyset (seek) pagination
+ * Gồm field sort, giá trị sort key và id của bản ghi biên, được encode thành chuỗi opaque
+ */
+public class PageCursor {
+    private static final String SEPARATOR = "|";
+
+    private final String sortBy;        // Property dùng để sort (createdAt, rating, likeCount)
+    private final String sortValue;     // Giá trị sort key của bản ghi biên
+    private final Long id;              // Id của bản ghi biên (tie-breaker)
+    private final boolean backward;     // true = lấy trang trước
+
+    public PageCursor(String sortBy, String sortValue, Long id, boolean backward) {
+        this.sortBy = sortBy;
+        this.sortValue = sortValue;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    public String encode() {
+        String raw = (backward ? "p" : "n") + SEPARATOR + sortBy + SEPARATOR + id + SEPARATOR + sortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode cursor từ request
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    public static PageCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4 || !("n".equals(parts[0]) || "p".equals(parts[0]))) {
+                throw new IllegalArgumentException("Invalid cursor: " + encoded);
+            }
+            return new PageCursor(parts[1], parts[3], Long.valueOf(parts[2]), "p".equals(parts[0]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + encoded, e);
+        }
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public String getSortValue() {
+        return sortValue;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+}
@@ -5,6 +5,7 @@ public class Pageable {
     private int size;           // Số items mỗi trang
     private String sortBy;      // Field để sort
     private String direction;   // ASC hoặc DESC
+    private String cursor;      // Cursor cho keyset pagination (null = offset mode, "" = trang đầu)
 
     // Default values
     private static final int DEFAULT_PAGE = 0;
@@ -43,7 +44,24 @@ public class Pageable {
         return new Pageable(page, size, sortBy, direction);
     }
 
+    /**
+     * Tạo Pageable ở chế độ keyset, cursor rỗng nghĩa là trang đầu tiên
+     */
+    public static Pageable ofCursor(String cursor, int size, String sortBy, String direction) {
+        Pageable pageable = new Pageable(DEFAULT_PAGE, size, sortBy, direction);
+        pageable.setCursor(cursor != null ? cursor : "");
+        return pageable;
+    }
+
     // Helper methods
+    public boolean isKeyset() {
+        return cursor != null;
+    }
+
+    public boolean hasCursor() {
+        return cursor != null && !cursor.isEmpty();
+    }
+
     public int getOffset() {
         return page * size;
     }
@@ -84,4 +102,18 @@ public class Pageable {
     public void setDirection(String direction) {
         this.direction = direction;
     }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    @Override
+    public String toString() {
+        return "Pageable{page=" + page + ", size=" + size + ", sort=" + getOrderBy()
+                + (cursor != null ? ", cursor='" + cursor + "'" : "") + "}";
+    }
 }
@@ -0,0 +1,37 @@
+package com.example.nasa.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Đánh dấu một bước migrate dữ liệu đã chạy (mỗi bước một dòng), để bước đó chỉ chạy một lần
+ */
+@Entity
+@Table(name = "schema_migrations")
+public class SchemaMigration {
+
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+
+    // Constructors
+    public SchemaMigration() {
+    }
+
+    public SchemaMigration(String name) {
+        this.name = name;
+        this.appliedAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public LocalDateTime getAppliedAt() {
+        return appliedAt;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.nasa.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Snapshot bất biến của thống kê comment, được thay thế nguyên khối khi có thay đổi
+ */
+public final class StatsSnapshot {
+    private final long totalComments;
+    private final LocalDate today;
+    private final long todayComments;
+    private final CommentSummary topRatedComment;
+    private final CommentSummary mostLikedComment;
+    private final LocalDateTime generatedAt;
+
+    public StatsSnapshot(long totalComments, LocalDate today, long todayComments,
+                         CommentSummary topRatedComment, CommentSummary mostLikedComment) {
+        this.totalComments = totalComments;
+        this.today = today;
+        this.todayComments = todayComments;
+        this.topRatedComment = topRatedComment;
+        this.mostLikedComment = mostLikedComment;
+        this.generatedAt = LocalDateTime.now();
+    }
+
+    public long getTotalComments() {
+        return totalComments;
+    }
+
+    public LocalDate getToday() {
+        return today;
+    }
+
+    public long getTodayComments() {
+        return todayComments;
+    }
+
+    public CommentSummary getTopRatedComment() {
+        return topRatedComment;
+    }
+
+    public CommentSummary getMostLikedComment() {
+        return mostLikedComment;
+    }
+
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    /**
+     * Cùng nội dung hiển thị với snapshot khác (bỏ qua generatedAt)
+     */
+    public boolean sameContentAs(StatsSnapshot other) {
+        return other != null
+                && totalComments == other.totalComments
+                && today.equals(other.today)
+                && todayComments == other.todayComments
+                && sameComment(topRatedComment, other.topRatedComment)
+                && sameComment(mostLikedComment, other.mostLikedComment);
+    }
+
+    private static boolean sameComment(CommentSummary a, CommentSummary b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.getId(), b.getId())
+                && a.getRating() == b.getRating()
+                && a.getLikeCount() == b.getLikeCount()
+                && Objects.equals(a.getAuthorName(), b.getAuthorName())
+                && Objects.equals(a.getCommentText(), b.getCommentText())
+                && Objects.equals(a.getImagePath(), b.getImagePath());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.nasa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache cho các câu COUNT dùng trong pagination
+ * Key theo (filter, date, search term), bị xóa khi thêm/xóa comment
+ */
+@Component
+public class CommentCountCache {
+
+    private static final String ALL_KEY = "all";
+    private static final String DATE_PREFIX = "date:";
+    private static final String SEARCH_PREFIX = "search:";
+
+    @Value("${comments.count-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final ConcurrentMap<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+    // Tăng mỗi lần invalidate, tránh ghi đè cache bằng kết quả COUNT đã cũ
+    private final AtomicLong generation = new AtomicLong();
+
+    public static String allKey() {
+        return ALL_KEY;
+    }
+
+    public static String dateKey(LocalDate date) {
+        return DATE_PREFIX + date;
+    }
+
+    public static String searchKey(String searchTerm) {
+        return SEARCH_PREFIX + searchTerm.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lấy count từ cache, nếu không có hoặc hết hạn thì gọi loader
+     */
+    public CachedCount get(String key, Supplier<CachedCount> loader) {
+        long now = System.nanoTime();
+        CachedCount cached = counts.get(key);
+        if (cached != null && now - cached.loadedAt < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            return cached;
+        }
+
+        long startGeneration = generation.get();
+        CachedCount loaded = loader.get();
+        if (generation.get() == startGeneration) {
+            counts.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Xóa các count bị ảnh hưởng khi thêm/xóa một comment của ngày date
+     * Xóa ngay và xóa lại sau khi transaction commit
+     */
+    public void invalidate(LocalDate date) {
+        evict(date);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(date);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        counts.clear();
+    }
+
+    private void evict(LocalDate date) {
+        generation.incrementAndGet();
+        counts.remove(ALL_KEY);
+        if (date != null) {
+            counts.remove(dateKey(date));
+        }
+        counts.keySet().removeIf(key -> key.startsWith(SEARCH_PREFIX));
+    }
+
+    /**
+     * Giá trị count đã cache, exact = false nếu chỉ là ước lượng
+     */
+    public static class CachedCount {
+        private final long value;
+        private final boolean exact;
+        private final long loadedAt;
+
+        public CachedCount(long value, boolean exact) {
+            this.value = value;
+            this.exact = exact;
+            this.loadedAt = System.nanoTime();
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        public boolean isExact() {
+            return exact;
+        }
+    }
+}
@@ -1,43 +1,176 @@
 package com.example.nasa.repository;
 
 import com.example.nasa.model.Comment;
+import com.example.nasa.model.CommentSummary;
 import com.example.nasa.model.Page;
+import com.example.nasa.model.PageCursor;
 import com.example.nasa.model.Pageable;
+import org.hibernate.Cache;
+import org.hibernate.CacheMode;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.sql.PreparedStatement;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Repository
 public class CommentRepository {
 
+    private static final String FEED_CACHE_REGION = "comment-feed";
+    private static final String LIKE_COUNT_QUERY_SPACE = "comments_like_count";
+
+    // Bảng cấp id cho Comment, xem @TableGenerator trong Comment
+    private static final String ID_GENERATOR_TABLE = "id_generators";
+    private static final String ID_GENERATOR_SEGMENT = "comments";
+
+    // Projection cho các trang comment: chỉ đọc các cột cần hiển thị, không tạo entity managed
+    private static final String SUMMARY_SELECT = "SELECT new com.example.nasa.model.CommentSummary(" +
+            "c.id, c.authorName, c.rating, c.commentText, c.commentDate, c.createdAt, c.imagePath, c.likeCount) ";
+
     @Autowired
     private SessionFactory sessionFactory;
 
+    @Autowired
+    private CommentCountCache countCache;
+
+    // Số kết quả tối đa khi đếm search (0 = đếm chính xác)
+    @Value("${search.count.approximate-cap:0}")
+    private int searchCountCap;
+
+    // MySQL Connector/J chỉ stream từng dòng khi fetchSize = Integer.MIN_VALUE
+    @Value("${comments.export.fetch-size:" + Integer.MIN_VALUE + "}")
+    private int exportFetchSize;
+
     protected Session getSession() {
         return sessionFactory.getCurrentSession();
     }
 
     public void save(Comment comment) {
         getSession().save(comment);
+        countCache.invalidate(comment.getCommentDate());
     }
 
     public void update(Comment comment) {
         getSession().update(comment);
+        countCache.invalidate(comment.getCommentDate());
     }
 
     public void delete(Comment comment) {
         getSession().delete(comment);
+        countCache.invalidate(comment.getCommentDate());
+    }
+
+    /**
+     * Insert nhiều comment bằng JDBC batch
+     * Flush + clear sau mỗi batch để persistence context không phình ra, không ghi vào second-level cache
+     */
+    public void insertBatch(List<Comment> comments, int batchSize) {
+        Session session = getSession();
+        session.setJdbcBatchSize(batchSize);
+        session.setCacheMode(CacheMode.IGNORE);
+
+        Set<LocalDate> dates = new HashSet<>();
+        for (int i = 0; i < comments.size(); i++) {
+            Comment comment = comments.get(i);
+            session.persist(comment);
+            dates.add(comment.getCommentDate());
+            if ((i + 1) % batchSize == 0) {
+                session.flush();
+                session.clear();
+            }
+        }
+        session.flush();
+        session.clear();
+
+        for (LocalDate date : dates) {
+            countCache.invalidate(date);
+        }
+    }
+
+    /**
+     * Đảm bảo id cấp từ bảng id_generators lớn hơn mọi id đã có
+     * Cần khi chuyển từ IDENTITY sang table generator trên dữ liệu cũ
+     */
+    public void alignIdGenerator() {
+        Number maxId = (Number) getSession().createNativeQuery("SELECT COALESCE(MAX(id), 0) FROM comments")
+                .uniqueResult();
+        long nextVal = (maxId != null ? maxId.longValue() : 0L) + 1;
+
+        int updated = getSession().createNativeQuery("UPDATE " + ID_GENERATOR_TABLE +
+                        " SET next_val = :nextVal WHERE sequence_name = :segment AND next_val < :nextVal")
+                .addSynchronizedQuerySpace(ID_GENERATOR_TABLE)
+                .setParameter("nextVal", nextVal)
+                .setParameter("segment", ID_GENERATOR_SEGMENT)
+                .executeUpdate();
+        if (updated > 0) {
+            return;
+        }
+
+        Number rows = (Number) getSession().createNativeQuery("SELECT COUNT(*) FROM " + ID_GENERATOR_TABLE +
+                        " WHERE sequence_name = :segment")
+                .setParameter("segment", ID_GENERATOR_SEGMENT)
+                .uniqueResult();
+        if (rows == null || rows.longValue() == 0) {
+            getSession().createNativeQuery("INSERT INTO " + ID_GENERATOR_TABLE +
+                            " (sequence_name, next_val) VALUES (:segment, :nextVal)")
+                    .addSynchronizedQuerySpace(ID_GENERATOR_TABLE)
+                    .setParameter("segment", ID_GENERATOR_SEGMENT)
+                    .setParameter("nextVal", nextVal)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Số comment đang dùng một ảnh (reference count của nội dung trong FileStorageService)
+     */
+    public Long countByImagePath(String imagePath) {
+        String hql = "SELECT COUNT(c) FROM Comment c WHERE c.imagePath = :imagePath";
+        Query<Long> query = getSession().createQuery(hql, Long.class);
+        query.setParameter("imagePath", imagePath);
+        return query.uniqueResult();
+    }
+
+    /**
+     * Đổi đường dẫn ảnh cho mọi comment đang dùng oldPath (migrate sang store mới)
+     */
+    public int replaceImagePath(String oldPath, String newPath) {
+        String hql = "UPDATE Comment c SET c.imagePath = :newPath WHERE c.imagePath = :oldPath";
+        Query query = getSession().createQuery(hql);
+        query.setParameter("newPath", newPath);
+        query.setParameter("oldPath", oldPath);
+        return query.executeUpdate();
     }
 
     public Comment findById(Long id) {
         return getSession().get(Comment.class, id);
     }
 
+    /**
+     * Lấy reference (proxy) tới Comment mà không chạy SELECT
+     */
+    public Comment getReference(Long id) {
+        return getSession().load(Comment.class, id);
+    }
+
     public List<Comment> findAll() {
         String hql = "FROM Comment c ORDER BY c.createdAt DESC";
         Query<Comment> query = getSession().createQuery(hql, Comment.class);
@@ -56,6 +189,11 @@ public class CommentRepository {
     }
 
     public Long countByDate(LocalDate date) {
+        return countCache.get(CommentCountCache.dateKey(date),
+                () -> new CommentCountCache.CachedCount(queryCountByDate(date), true)).getValue();
+    }
+
+    private Long queryCountByDate(LocalDate date) {
         String hql = "SELECT COUNT(c) FROM Comment c WHERE c.commentDate = :date";
         Query<Long> query = getSession().createQuery(hql, Long.class);
         query.setParameter("date", date);
@@ -67,13 +205,14 @@ public class CommentRepository {
     /**
      * Find comments với pagination
      */
-    public Page<Comment> findAllWithPagination(Pageable pageable) {
+    public Page<CommentSummary> findAllWithPagination(Pageable pageable) {
         // Query để lấy dữ liệu
-        String hql = "FROM Comment c ORDER BY c." + pageable.getSortBy() + " " + pageable.getDirection();
-        Query<Comment> query = getSession().createQuery(hql, Comment.class);
+        String hql = SUMMARY_SELECT + "FROM Comment c ORDER BY " + orderBy(pageable);
+        Query<CommentSummary> query = getSession().createQuery(hql, CommentSummary.class);
+        cacheFeedQuery(query, pageable);
         query.setFirstResult(pageable.getOffset());
         query.setMaxResults(pageable.getSize());
-        List<Comment> content = query.list();
+        List<CommentSummary> content = query.list();
 
         // Query để đếm tổng số
         Long totalElements = countAll();
@@ -84,15 +223,15 @@ public class CommentRepository {
     /**
      * Find comments by date với pagination
      */
-    public Page<Comment> findByDateWithPagination(LocalDate date, Pageable pageable) {
+    public Page<CommentSummary> findByDateWithPagination(LocalDate date, Pageable pageable) {
         // Query để lấy dữ liệu
-        String hql = "FROM Comment c WHERE c.commentDate = :date ORDER BY c." +
-                pageable.getSortBy() + " " + pageable.getDirection();
-        Query<Comment> query = getSession().createQuery(hql, Comment.class);
+        String hql = SUMMARY_SELECT + "FROM Comment c WHERE c.commentDate = :date ORDER BY " + orderBy(pageable);
+        Query<CommentSummary> query = getSession().createQuery(hql, CommentSummary.class);
         query.setParameter("date", date);
+        cacheFeedQuery(query, pageable);
         query.setFirstResult(pageable.getOffset());
         query.setMaxResults(pageable.getSize());
-        List<Comment> content = query.list();
+        List<CommentSummary> content = query.list();
 
         // Query để đếm tổng số
         Long totalElements = countByDate(date);
@@ -103,7 +242,7 @@ public class CommentRepository {
     /**
      * Find today's comments với pagination
      */
-    public Page<Comment> findTodayCommentsWithPagination(Pageable pageable) {
+    public Page<CommentSummary> findTodayCommentsWithPagination(Pageable pageable) {
         return findByDateWithPagination(LocalDate.now(), pageable);
     }
 
@@ -111,6 +250,11 @@ public class CommentRepository {
      * Đếm tổng số comments
      */
     public Long countAll() {
+        return countCache.get(CommentCountCache.allKey(),
+                () -> new CommentCountCache.CachedCount(queryCountAll(), true)).getValue();
+    }
+
+    private Long queryCountAll() {
         String hql = "SELECT COUNT(c) FROM Comment c";
         Query<Long> query = getSession().createQuery(hql, Long.class);
         return query.uniqueResult();
@@ -119,13 +263,14 @@ public class CommentRepository {
     /**
      * Find comments được sort theo số lượng likes
      */
-    public Page<Comment> findAllSortedByLikes(Pageable pageable) {
-        String hql = "SELECT c FROM Comment c LEFT JOIN c.likes l " +
-                "GROUP BY c ORDER BY COUNT(l) " + pageable.getDirection();
-        Query<Comment> query = getSession().createQuery(hql, Comment.class);
+    public Page<CommentSummary> findAllSortedByLikes(Pageable pageable) {
+        String direction = direction(pageable);
+        String hql = SUMMARY_SELECT + "FROM Comment c ORDER BY c.likeCount " + direction + ", c.id " + direction;
+        // Không dùng query cache: thứ tự phụ thuộc like_count, cột này đổi mà không invalidate region comment-feed
+        Query<CommentSummary> query = getSession().createQuery(hql, CommentSummary.class);
         query.setFirstResult(pageable.getOffset());
         query.setMaxResults(pageable.getSize());
-        List<Comment> content = query.list();
+        List<CommentSummary> content = query.list();
 
         Long totalElements = countAll();
 
@@ -137,22 +282,43 @@ public class CommentRepository {
     /**
      * Search comments by author name or comment text với pagination
      */
-    public Page<Comment> searchComments(String searchTerm, Pageable pageable) {
-        String hql = "FROM Comment c WHERE " +
+    public Page<CommentSummary> searchComments(String searchTerm, Pageable pageable) {
+        String hql = SUMMARY_SELECT + "FROM Comment c WHERE " +
                 "LOWER(c.authorName) LIKE LOWER(:searchTerm) OR " +
                 "LOWER(c.commentText) LIKE LOWER(:searchTerm) " +
-                "ORDER BY c." + pageable.getSortBy() + " " + pageable.getDirection();
+                "ORDER BY " + orderBy(pageable);
 
-        Query<Comment> query = getSession().createQuery(hql, Comment.class);
+        Query<CommentSummary> query = getSession().createQuery(hql, CommentSummary.class);
         query.setParameter("searchTerm", "%" + searchTerm + "%");
         query.setFirstResult(pageable.getOffset());
         query.setMaxResults(pageable.getSize());
-        List<Comment> content = query.list();
+        List<CommentSummary> content = query.list();
 
-        // Count matching results
-        Long totalElements = countSearchResults(searchTerm);
+        // Count matching results (có thể là ước lượng nếu bật approximate-cap)
+        CommentCountCache.CachedCount total = countCache.get(CommentCountCache.searchKey(searchTerm),
+                () -> searchCountCap > 0
+                        ? countSearchResultsUpTo(searchTerm, searchCountCap)
+                        : new CommentCountCache.CachedCount(countSearchResults(searchTerm), true));
 
-        return new Page<>(content, pageable.getPage(), pageable.getSize(), totalElements);
+        return new Page<>(content, pageable.getPage(), pageable.getSize(), total.getValue(), total.isExact());
+    }
+
+    /**
+     * Đếm search results nhưng dừng khi vượt quá cap
+     * Nếu vượt cap thì trả về cap với exact = false
+     */
+    private CommentCountCache.CachedCount countSearchResultsUpTo(String searchTerm, int cap) {
+        String sql = "SELECT COUNT(*) FROM (SELECT 1 FROM comments c WHERE " +
+                "LOWER(c.author_name) LIKE LOWER(:searchTerm) OR " +
+                "LOWER(c.comment_text) LIKE LOWER(:searchTerm) LIMIT :cap) matched";
+        Number count = (Number) getSession().createNativeQuery(sql)
+                .setParameter("searchTerm", "%" + searchTerm + "%")
+                .setParameter("cap", cap + 1)
+                .uniqueResult();
+        long value = count != null ? count.longValue() : 0L;
+        return value > cap
+                ? new CommentCountCache.CachedCount(cap, false)
+                : new CommentCountCache.CachedCount(value, true);
     }
 
     /**
@@ -167,6 +333,44 @@ public class CommentRepository {
         return query.uniqueResult();
     }
 
+    /**
+     * Load comments (projection) theo danh sách id, giữ đúng thứ tự của ids
+     */
+    public List<CommentSummary> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String hql = SUMMARY_SELECT + "FROM Comment c WHERE c.id IN (:ids)";
+        Query<CommentSummary> query = getSession().createQuery(hql, CommentSummary.class);
+        query.setParameterList("ids", ids);
+
+        Map<Long, CommentSummary> byId = new HashMap<>();
+        for (CommentSummary comment : query.list()) {
+            byId.put(comment.getId(), comment);
+        }
+        List<CommentSummary> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CommentSummary comment = byId.get(id);
+            if (comment != null) {
+                ordered.add(comment);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Đọc một batch các cột cần cho search index, theo id tăng dần
+     * Mỗi phần tử: [id, authorName, commentText, createdAt, rating]
+     */
+    public List<Object[]> findSearchDocuments(Long afterId, int batchSize) {
+        String hql = "SELECT c.id, c.authorName, c.commentText, c.createdAt, c.rating " +
+                "FROM Comment c WHERE c.id > :afterId ORDER BY c.id";
+        Query<Object[]> query = getSession().createQuery(hql, Object[].class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(batchSize);
+        return query.list();
+    }
+
     /**
      * Get search suggestions (autocomplete)
      */
@@ -180,6 +384,16 @@ public class CommentRepository {
         return query.list();
     }
 
+    /**
+     * Đếm số comment theo từng tác giả (dùng để build index gợi ý)
+     * Mỗi phần tử: [authorName, count]
+     */
+    public List<Object[]> countCommentsByAuthor() {
+        String hql = "SELECT c.authorName, COUNT(c) FROM Comment c GROUP BY c.authorName";
+        Query<Object[]> query = getSession().createQuery(hql, Object[].class);
+        return query.list();
+    }
+
     /**
      * Get top rated comment
      */
@@ -194,10 +408,342 @@ public class CommentRepository {
      * Get most liked comment
      */
     public Comment findMostLikedComment() {
-        String hql = "SELECT c FROM Comment c LEFT JOIN c.likes l " +
-                "GROUP BY c ORDER BY COUNT(l) DESC";
+        String hql = "FROM Comment c ORDER BY c.likeCount DESC, c.createdAt DESC";
         Query<Comment> query = getSession().createQuery(hql, Comment.class);
         query.setMaxResults(1);
         return query.uniqueResult();
     }
+
+    // ============== EXPORT METHODS ==============
+
+    /**
+     * Duyệt comments theo id tăng dần bằng cursor forward-only trên StatelessSession
+     * Không có persistence context, mỗi dòng được xử lý rồi bỏ đi nên bộ nhớ không phụ thuộc số dòng
+     * from/to có thể null (không giới hạn); trả về số dòng đã xử lý
+     */
+    public long scrollForExport(LocalDate from, LocalDate to, RowHandler<CommentSummary> handler) throws IOException {
+        StringBuilder hql = new StringBuilder("SELECT c.id, c.authorName, c.rating, c.commentText, " +
+                "c.commentDate, c.createdAt, c.imagePath, c.likeCount FROM Comment c WHERE 1 = 1");
+        if (from != null) {
+            hql.append(" AND c.commentDate >= :from");
+        }
+        if (to != null) {
+            hql.append(" AND c.commentDate <= :to");
+        }
+        hql.append(" ORDER BY c.id");
+
+        long rows = 0;
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            Query<Object[]> query = session.createQuery(hql.toString(), Object[].class);
+            if (from != null) {
+                query.setParameter("from", from);
+            }
+            if (to != null) {
+                query.setParameter("to", to);
+            }
+            query.setFetchSize(exportFetchSize);
+
+            ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    Object[] row = results.get();
+                    handler.handle(new CommentSummary((Long) row[0], (String) row[1],
+                            row[2] != null ? (Integer) row[2] : 0, (String) row[3], (LocalDate) row[4],
+                            (LocalDateTime) row[5], (String) row[6], (Integer) row[7]));
+                    rows++;
+                }
+            } finally {
+                results.close();
+            }
+        } finally {
+            session.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Xử lý từng dòng khi duyệt bằng cursor
+     */
+    public interface RowHandler<T> {
+        void handle(T row) throws IOException;
+    }
+
+    // ============== LIKE COUNTER METHODS ==============
+
+    /**
+     * Cộng/trừ like_count bằng một câu UPDATE nguyên tử
+     * Trả về số dòng bị ảnh hưởng (0 nếu comment không tồn tại)
+     */
+    public int adjustLikeCount(Long commentId, int delta) {
+        // Native UPDATE với query space riêng: Hibernate không xóa cả region Comment
+        // và query cache của feed, chỉ evict đúng comment bị đổi like_count
+        String sql = "UPDATE comments SET like_count = like_count + :delta WHERE id = :commentId";
+        int updated = getSession().createNativeQuery(sql)
+                .addSynchronizedQuerySpace(LIKE_COUNT_QUERY_SPACE)
+                .setParameter("delta", delta)
+                .setParameter("commentId", commentId)
+                .executeUpdate();
+        evictLikeCount(Collections.singleton(commentId));
+        return updated;
+    }
+
+    /**
+     * Đọc riêng cột like_count, không load cả entity
+     * Trả về null nếu comment không tồn tại
+     */
+    public Integer findLikeCount(Long commentId) {
+        String hql = "SELECT c.likeCount FROM Comment c WHERE c.id = :commentId";
+        Query<Integer> query = getSession().createQuery(hql, Integer.class);
+        query.setParameter("commentId", commentId);
+        return query.uniqueResult();
+    }
+
+    /**
+     * Cộng/trừ like_count cho nhiều comment trong một JDBC batch
+     */
+    public void adjustLikeCounts(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        getSession().doWork(connection -> {
+            String sql = "UPDATE comments SET like_count = like_count + ? WHERE id = ?";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                    statement.setInt(1, delta.getValue());
+                    statement.setLong(2, delta.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        evictLikeCount(deltas.keySet());
+    }
+
+    /**
+     * Đọc một batch (id, like_count) theo id tăng dần (dùng để build leaderboard)
+     */
+    public List<Object[]> findLikeCounts(Long afterId, int batchSize) {
+        String hql = "SELECT c.id, c.likeCount FROM Comment c WHERE c.id > :afterId ORDER BY c.id";
+        Query<Object[]> query = getSession().createQuery(hql, Object[].class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(batchSize);
+        return query.list();
+    }
+
+    /**
+     * Đọc (id, like_count) của một nhóm comment (dùng để đối chiếu leaderboard)
+     */
+    public List<Object[]> findLikeCountsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String hql = "SELECT c.id, c.likeCount FROM Comment c WHERE c.id IN (:ids)";
+        Query<Object[]> query = getSession().createQuery(hql, Object[].class);
+        query.setParameterList("ids", ids);
+        return query.list();
+    }
+
+    /**
+     * Tính lại like_count từ bảng likes (dùng khi migrate dữ liệu cũ)
+     */
+    public int recalculateLikeCounts() {
+        String hql = "UPDATE Comment c SET c.likeCount = " +
+                "(SELECT COUNT(l) FROM Like l WHERE l.comment.id = c.id)";
+        Query query = getSession().createQuery(hql);
+        return query.executeUpdate();
+    }
+
+    // ============== KEYSET PAGINATION METHODS ==============
+
+    /**
+     * Find comments với keyset pagination
+     * Thời gian truy vấn không phụ thuộc vào độ sâu của trang
+     */
+    public Page<CommentSummary> findAllWithCursor(Pageable pageable) {
+        return findWithCursor(null, pageable, countAll());
+    }
+
+    /**
+     * Find comments by date với keyset pagination
+     */
+    public Page<CommentSummary> findByDateWithCursor(LocalDate date, Pageable pageable) {
+        return findWithCursor(date, pageable, countByDate(date));
+    }
+
+    private Page<CommentSummary> findWithCursor(LocalDate date, Pageable pageable, long totalElements) {
+        String property = keysetProperty(pageable);
+        boolean ascending = "ASC".equals(direction(pageable));
+        PageCursor cursor = pageable.hasCursor() ? PageCursor.decode(pageable.getCursor()) : null;
+        if (cursor != null && !property.equals(cursor.getSortBy())) {
+            throw new IllegalArgumentException("Cursor was created for sort '" + cursor.getSortBy() + "'");
+        }
+        boolean backward = cursor != null && cursor.isBackward();
+
+        // Trang trước được lấy theo chiều ngược lại rồi đảo lại thứ tự
+        boolean scanAscending = ascending != backward;
+        String scanDirection = scanAscending ? "ASC" : "DESC";
+        String comparator = scanAscending ? ">" : "<";
+
+        StringBuilder hql = new StringBuilder(SUMMARY_SELECT).append("FROM Comment c WHERE 1 = 1");
+        if (date != null) {
+            hql.append(" AND c.commentDate = :date");
+        }
+        if (cursor != null) {
+            hql.append(" AND (c.").append(property).append(" ").append(comparator).append(" :sortValue")
+                    .append(" OR (c.").append(property).append(" = :sortValue AND c.id ")
+                    .append(comparator).append(" :id))");
+        }
+        hql.append(" ORDER BY c.").append(property).append(" ").append(scanDirection)
+                .append(", c.id ").append(scanDirection);
+
+        Query<CommentSummary> query = getSession().createQuery(hql.toString(), CommentSummary.class);
+        if (date != null) {
+            query.setParameter("date", date);
+        }
+        if (cursor != null) {
+            query.setParameter("sortValue", parseSortValue(property, cursor.getSortValue()));
+            query.setParameter("id", cursor.getId());
+        }
+        // Lấy thêm 1 bản ghi để biết còn trang tiếp theo hay không
+        query.setMaxResults(pageable.getSize() + 1);
+        List<CommentSummary> content = new ArrayList<>(query.list());
+
+        boolean hasMore = content.size() > pageable.getSize();
+        if (hasMore) {
+            content.remove(content.size() - 1);
+        }
+        if (backward) {
+            Collections.reverse(content);
+        }
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!content.isEmpty()) {
+            boolean hasNext = backward || hasMore;
+            boolean hasPrevious = backward ? hasMore : cursor != null;
+            if (hasNext) {
+                nextCursor = cursorOf(property, content.get(content.size() - 1), false);
+            }
+            if (hasPrevious) {
+                prevCursor = cursorOf(property, content.get(0), true);
+            }
+        }
+
+        return Page.ofKeyset(content, pageable.getSize(), totalElements, nextCursor, prevCursor);
+    }
+
+    private String cursorOf(String property, CommentSummary comment, boolean backward) {
+        String value;
+        switch (property) {
+            case "likeCount":
+                value = String.valueOf(comment.getLikeCount());
+                break;
+            case "rating":
+                value = String.valueOf(comment.getRating());
+                break;
+            case "createdAt":
+            default:
+                value = comment.getCreatedAt().toString();
+                break;
+        }
+        return new PageCursor(property, value, comment.getId(), backward).encode();
+    }
+
+    private Object parseSortValue(String property, String value) {
+        try {
+            switch (property) {
+                case "likeCount":
+                case "rating":
+                    return Integer.valueOf(value);
+                case "createdAt":
+                default:
+                    return LocalDateTime.parse(value);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor value: " + value, e);
+        }
+    }
+
+    /**
+     * Keyset pagination chỉ hỗ trợ các field có index (createdAt, rating, likes)
+     */
+    private String keysetProperty(Pageable pageable) {
+        String property = sortProperty(pageable);
+        switch (property) {
+            case "likeCount":
+            case "rating":
+            case "createdAt":
+                return property;
+            default:
+                throw new IllegalArgumentException("Keyset pagination does not support sort '" +
+                        pageable.getSortBy() + "'");
+        }
+    }
+
+    /**
+     * Evict các comment vừa đổi like_count khỏi second-level cache, ngay và sau khi commit
+     */
+    private void evictLikeCount(Collection<Long> commentIds) {
+        List<Long> ids = new ArrayList<>(commentIds);
+        Runnable evict = () -> {
+            Cache cache = sessionFactory.getCache();
+            for (Long id : ids) {
+                cache.evictEntityData(Comment.class, id);
+                cache.evictCollectionData(Comment.class.getName() + ".likes", id);
+            }
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Kết quả feed được lưu trong query cache, tự invalidate khi bảng comments thay đổi qua Hibernate
+     * like_count trong kết quả cache có thể cũ (cập nhật qua query space riêng), CommentService thay bằng giá trị live
+     * Vì vậy feed sort theo likes không được cache: thứ tự trong kết quả cache sẽ sai khi like_count thay đổi
+     */
+    private void cacheFeedQuery(Query<?> query, Pageable pageable) {
+        if ("likeCount".equals(sortProperty(pageable))) {
+            return;
+        }
+        query.setCacheable(true);
+        query.setCacheRegion(FEED_CACHE_REGION);
+    }
+
+    /**
+     * Chuyển sortBy từ request thành ORDER BY an toàn
+     * "likes" được map sang cột like_count
+     */
+    private String orderBy(Pageable pageable) {
+        String direction = direction(pageable);
+        return "c." + sortProperty(pageable) + " " + direction + ", c.id " + direction;
+    }
+
+    private String sortProperty(Pageable pageable) {
+        switch (pageable.getSortBy()) {
+            case "likes":
+            case "likeCount":
+                return "likeCount";
+            case "rating":
+                return "rating";
+            case "authorName":
+                return "authorName";
+            case "commentDate":
+                return "commentDate";
+            case "createdAt":
+            default:
+                return "createdAt";
+        }
+    }
+
+    private String direction(Pageable pageable) {
+        return "ASC".equalsIgnoreCase(pageable.getDirection()) ? "ASC" : "DESC";
+    }
 }
@@ -1,15 +1,28 @@
 package com.example.nasa.repository;
 
 import com.example.nasa.model.Like;
+import com.example.nasa.model.LikeKey;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public class LikeRepository {
 
+    // Dòng trùng (uk_likes_comment_user) bị bỏ qua thay vì lỗi, số dòng trả về phản ánh like thật sự được thêm
+    private static final String INSERT_IGNORE = "INSERT IGNORE INTO likes (comment_id, user_ip, created_at) " +
+            "SELECT c.id, ?, ? FROM comments c WHERE c.id = ?";
+
     @Autowired
     private SessionFactory sessionFactory;
 
@@ -53,4 +66,85 @@ public class LikeRepository {
         query.setParameter("userIp", userIp);
         return query.executeUpdate();
     }
+
+    /**
+     * Lấy IP của tất cả lượt thích một comment (dùng để load membership index)
+     */
+    public List<String> findUserIpsByCommentId(Long commentId) {
+        String hql = "SELECT l.userIp FROM Like l WHERE l.comment.id = :commentId";
+        Query<String> query = getSession().createQuery(hql, String.class);
+        query.setParameter("commentId", commentId);
+        return query.list();
+    }
+
+    /**
+     * Trong các comment cho trước, lấy id những comment mà userIp đã thích
+     */
+    public List<Long> findLikedCommentIds(Collection<Long> commentIds, String userIp) {
+        if (commentIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String hql = "SELECT l.comment.id FROM Like l WHERE l.comment.id IN (:commentIds) AND l.userIp = :userIp";
+        Query<Long> query = getSession().createQuery(hql, Long.class);
+        query.setParameterList("commentIds", commentIds);
+        query.setParameter("userIp", userIp);
+        return query.list();
+    }
+
+    // ============== BATCH METHODS ==============
+
+    /**
+     * Insert một like nếu chưa có (comment_id, user_ip); trả về 0 nếu đã like hoặc comment không tồn tại
+     */
+    public int insertIfAbsent(Long commentId, String userIp, LocalDateTime createdAt) {
+        return getSession().createNativeQuery(INSERT_IGNORE)
+                .addSynchronizedEntityClass(Like.class)
+                .setParameter(1, userIp)
+                .setParameter(2, Timestamp.valueOf(createdAt))
+                .setParameter(3, commentId)
+                .executeUpdate();
+    }
+
+    /**
+     * Insert nhiều like trong một JDBC batch
+     * Bỏ qua like của comment đã bị xóa và like đã tồn tại; trả về số dòng insert của từng phần tử
+     */
+    public int[] insertBatch(List<LikeKey> keys, LocalDateTime createdAt) {
+        return executeBatch(keys, INSERT_IGNORE, (statement, key) -> {
+            statement.setString(1, key.getUserIp());
+            statement.setTimestamp(2, Timestamp.valueOf(createdAt));
+            statement.setLong(3, key.getCommentId());
+        });
+    }
+
+    /**
+     * Delete nhiều like trong một JDBC batch
+     * Trả về số dòng bị xóa của từng phần tử
+     */
+    public int[] deleteBatch(List<LikeKey> keys) {
+        return executeBatch(keys, "DELETE FROM likes WHERE comment_id = ? AND user_ip = ?", (statement, key) -> {
+            statement.setLong(1, key.getCommentId());
+            statement.setString(2, key.getUserIp());
+        });
+    }
+
+    private int[] executeBatch(List<LikeKey> keys, String sql, StatementBinder binder) {
+        if (keys.isEmpty()) {
+            return new int[0];
+        }
+        return getSession().doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (LikeKey key : keys) {
+                    binder.bind(statement, key);
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement statement, LikeKey key) throws SQLException;
+    }
 }
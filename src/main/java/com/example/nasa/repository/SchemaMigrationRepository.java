@@ -0,0 +1,26 @@
+package com.example.nasa.repository;
+
+import com.example.nasa.model.SchemaMigration;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class SchemaMigrationRepository {
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    protected Session getSession() {
+        return sessionFactory.getCurrentSession();
+    }
+
+    public boolean isApplied(String name) {
+        return getSession().get(SchemaMigration.class, name) != null;
+    }
+
+    public void markApplied(String name) {
+        getSession().save(new SchemaMigration(name));
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.nasa.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Executor có giới hạn cho phần truy cập DB của /api/**, để thread Tomcat không bị giữ trong lúc chờ JDBC
+ * Số thread bằng kích thước pool HikariCP (thêm thread chỉ làm tăng số thread chờ connection),
+ * hàng đợi đầy thì từ chối ngay để controller trả 503
+ * Request chạy lâu (export) dùng pool nhỏ riêng với timeout riêng, không chiếm thread của pool chính
+ */
+@Component
+public class ApiExecutor {
+
+    // 0 = bằng maximumPoolSize của HikariCP
+    @Value("${api.executor.threads:0}")
+    private int threads;
+
+    @Value("${api.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    // Timeout của async request; task chờ trong hàng đợi lâu hơn thì bỏ qua vì client đã nhận 503
+    @Value("${api.async.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    // Mỗi export giữ một connection suốt lúc stream, nên giới hạn số export song song
+    @Value("${api.export.threads:2}")
+    private int exportThreads;
+
+    @Value("${api.export.timeout-ms:600000}")
+    private long exportTimeoutMillis;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private QueryTracker queryTracker;
+
+    private ThreadPoolExecutor executor;
+
+    private ThreadPoolExecutor exportExecutor;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (threads <= 0) {
+            threads = dataSource instanceof HikariDataSource
+                    ? ((HikariDataSource) dataSource).getMaximumPoolSize()
+                    : Runtime.getRuntime().availableProcessors();
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "api-db-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+
+        // Không có hàng đợi: mọi thread export đều bận thì từ chối (503) thay vì để client chờ
+        AtomicInteger exportThreadNumber = new AtomicInteger();
+        exportExecutor = new ThreadPoolExecutor(exportThreads, exportThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "api-export-" + exportThreadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        exportExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        exportExecutor.shutdownNow();
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Chạy work trên executor, tiếp tục đếm statement vào request hiện tại (QueryTracker)
+     *
+     * @throws RejectedExecutionException khi hàng đợi đã đầy
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        QueryTracker.Scope scope = queryTracker.current();
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (System.nanoTime() - submittedAt > TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+                    expired.incrementAndGet();
+                    throw new CancellationException("Request expired in API queue");
+                }
+                queryTracker.attach(scope);
+                try {
+                    return work.get();
+                } finally {
+                    queryTracker.detach();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Chạy một request dài (stream export) trên pool export, với api.export.timeout-ms thay cho timeout async mặc định
+     */
+    public <T> WebAsyncTask<T> longRunning(Callable<T> work) {
+        QueryTracker.Scope scope = queryTracker.current();
+        ConcurrentTaskExecutor taskExecutor = new ConcurrentTaskExecutor(runnable -> {
+            try {
+                exportExecutor.execute(runnable);
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                throw e;
+            }
+        });
+        return new WebAsyncTask<>(exportTimeoutMillis, taskExecutor, () -> {
+            queryTracker.attach(scope);
+            try {
+                return work.call();
+            } finally {
+                queryTracker.detach();
+            }
+        });
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", threads);
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("completed", executor.getCompletedTaskCount());
+        metrics.put("rejected", rejected.get());
+        metrics.put("expired", expired.get());
+        metrics.put("exportActive", exportExecutor.getActiveCount());
+        metrics.put("exportThreads", exportThreads);
+        return metrics;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.Apod;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client phía server cho NASA APOD API
+ * Cache theo ngày trong bộ nhớ (LRU có giới hạn) và trên đĩa, gộp các request trùng ngày thành một lần gọi NASA
+ * Lỗi cũng được nhớ theo ngày với backoff tăng dần, để khi NASA sập không request nào phải chờ timeout lại
+ */
+@Service
+public class ApodService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApodService.class);
+
+    // NASA APOD đổi ảnh theo giờ miền Đông nước Mỹ
+    private static final ZoneId APOD_ZONE = ZoneId.of("America/New_York");
+
+    // Ngày đầu tiên có APOD
+    private static final LocalDate FIRST_APOD_DATE = LocalDate.of(1995, 6, 16);
+
+    @Value("${nasa.api.key}")
+    private String nasaApiKey;
+
+    @Value("${nasa.api.url}")
+    private String nasaApiUrl;
+
+    @Value("${apod.cache-dir:apod-cache}")
+    private String cacheDir;
+
+    @Value("${apod.timeout-ms:5000}")
+    private int timeoutMs;
+
+    @Value("${apod.cache-entries:500}")
+    private int maxEntries;
+
+    // Backoff sau lần lỗi đầu tiên, nhân đôi sau mỗi lần thử lại vẫn lỗi
+    @Value("${apod.failure-backoff-ms:30000}")
+    private long failureBackoffMs;
+
+    @Value("${apod.failure-backoff-max-ms:600000}")
+    private long maxFailureBackoffMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private Map<LocalDate, Apod> cache;
+
+    // Số entry bị chặn bởi khoảng ngày hợp lệ, entry bị xóa khi ngày đó tải thành công
+    private final ConcurrentMap<LocalDate, Failure> failures = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<LocalDate, CompletableFuture<Apod>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<LocalDate, Apod>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, Apod> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Ngày APOD hiện tại theo múi giờ của NASA
+     */
+    public LocalDate today() {
+        return LocalDate.now(APOD_ZONE);
+    }
+
+    /**
+     * APOD của ngày đã có trong bộ nhớ hay chưa (không tải)
+     */
+    public boolean isCached(LocalDate date) {
+        return cache.containsKey(date);
+    }
+
+    public Apod getTodayApod() throws IOException {
+        return getApod(today());
+    }
+
+    /**
+     * Lấy APOD của một ngày: bộ nhớ -> đĩa -> NASA API
+     *
+     * @throws IllegalArgumentException nếu ngày nằm ngoài khoảng NASA có APOD
+     * @throws IOException nếu NASA API lỗi, hoặc ngày này vừa lỗi và chưa hết thời gian backoff
+     */
+    public Apod getApod(LocalDate date) throws IOException {
+        validateDate(date);
+
+        Apod cached = cache.get(date);
+        if (cached != null) {
+            return cached;
+        }
+
+        Failure failure = failures.get(date);
+        if (failure != null && failure.isActive()) {
+            throw new IOException(failure.message + " (retrying in " + failure.remainingSeconds() + " s)");
+        }
+
+        CompletableFuture<Apod> future = new CompletableFuture<>();
+        CompletableFuture<Apod> existing = inFlight.putIfAbsent(date, future);
+        if (existing != null) {
+            // Đã có thread khác đang tải ngày này, chờ kết quả
+            return await(existing);
+        }
+
+        try {
+            Apod apod = readFromDisk(date);
+            if (apod == null) {
+                apod = fetchFromUpstream(date);
+                writeToDisk(date, apod);
+            }
+            cache.put(date, apod);
+            failures.remove(date);
+            future.complete(apod);
+            return apod;
+        } catch (IOException | RuntimeException e) {
+            recordFailure(date, failure, e);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(date, future);
+        }
+    }
+
+    private void validateDate(LocalDate date) {
+        if (date.isBefore(FIRST_APOD_DATE) || date.isAfter(today())) {
+            throw new IllegalArgumentException("APOD date must be between " + FIRST_APOD_DATE + " and " + today());
+        }
+    }
+
+    private void recordFailure(LocalDate date, Failure previous, Exception e) {
+        long delayMs = previous == null ? failureBackoffMs : Math.min(previous.delayMs * 2, maxFailureBackoffMs);
+        failures.put(date, new Failure(delayMs, e.getMessage()));
+        logger.warn("Could not load APOD for {}, not retrying for {} ms: {}", date, delayMs, e.getMessage());
+    }
+
+    private Apod await(CompletableFuture<Apod> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error loading APOD", e.getCause());
+        }
+    }
+
+    private Apod fetchFromUpstream(LocalDate date) throws IOException {
+        URL url = new URL(nasaApiUrl + "?api_key=" + URLEncoder.encode(nasaApiKey, "UTF-8") + "&date=" + date);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(timeoutMs);
+        connection.setReadTimeout(timeoutMs);
+        connection.setRequestProperty("Accept", "application/json");
+
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("NASA APOD API returned HTTP " + status + " for " + date);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return objectMapper.readValue(in, Apod.class);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Apod readFromDisk(LocalDate date) {
+        Path file = cacheFile(date);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), Apod.class);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable APOD cache file {}", file, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(LocalDate date, Apod apod) {
+        try {
+            Path dir = Paths.get(cacheDir);
+            Files.createDirectories(dir);
+
+            // Ghi ra file tạm rồi move để không bao giờ để lại file JSON dở dang
+            Path temp = Files.createTempFile(dir, date.toString(), ".tmp");
+            Files.write(temp, objectMapper.writeValueAsBytes(apod));
+            Files.move(temp, cacheFile(date), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not persist APOD for {}", date, e);
+        }
+    }
+
+    private Path cacheFile(LocalDate date) {
+        return Paths.get(cacheDir).resolve(date + ".json");
+    }
+
+    /**
+     * Lần tải lỗi gần nhất của một ngày
+     */
+    private static final class Failure {
+        private final long delayMs;
+        private final long retryAt;
+        private final String message;
+
+        Failure(long delayMs, String message) {
+            this.delayMs = delayMs;
+            this.retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+            this.message = message;
+        }
+
+        boolean isActive() {
+            return System.nanoTime() - retryAt < 0;
+        }
+
+        long remainingSeconds() {
+            return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAt - System.nanoTime()));
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.nasa.service;
+
+import com.example.nasa.repository.CommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Index prefix cho autocomplete tên tác giả, ưu tiên tác giả có nhiều comment
+ * Mỗi tác giả được index theo tên đã bỏ dấu bắt đầu từ từng từ trong tên,
+ * nên "an" khớp cả "An Nguyễn" lẫn "Nguyễn Văn An"
+ * Top tác giả của mỗi prefix đã tra được giữ lại và cập nhật khi số comment đổi,
+ * nên prefix ngắn (khớp rất nhiều key) chỉ phải duyệt toàn bộ một lần
+ */
+@Component
+public class AuthorSuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorSuggestionIndex.class);
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    // Số tác giả giữ sẵn cho mỗi prefix; limit lớn hơn thì duyệt trực tiếp
+    private static final int TOP_K = 20;
+
+    private static final Comparator<Author> BY_WEIGHT = Comparator.<Author>comparingInt(author -> author.commentCount)
+            .thenComparing(author -> author.name, Comparator.reverseOrder());
+
+    @Value("${suggestions.prefix-cache-entries:10000}")
+    private int maxCachedPrefixes;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // "<tên bỏ dấu từ từ thứ i>\0<tên gốc>" -> tác giả
+    private final ConcurrentSkipListMap<String, Author> prefixes = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentMap<String, Author> authors = new ConcurrentHashMap<>();
+
+    // prefix -> tối đa TOP_K tác giả khớp, nhiều comment nhất trước
+    // Danh sách không bao giờ bị sửa tại chỗ, writer thay bằng danh sách mới
+    private Map<String, List<Author>> topByPrefix;
+
+    // Tăng sau mỗi lần ghi, để kết quả duyệt song song với writer không được lưu vào topByPrefix
+    private long modifications;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @PostConstruct
+    public void init() {
+        topByPrefix = Collections.synchronizedMap(new LinkedHashMap<String, List<Author>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Author>> eldest) {
+                return size() > maxCachedPrefixes;
+            }
+        });
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void startBuild() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread builder = new Thread(this::build, "author-suggestion-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void build() {
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            List<Object[]> rows = transactionTemplate.execute(status -> commentRepository.countCommentsByAuthor());
+
+            // Cộng dồn vào số đã ghi nhận trong lúc build
+            for (Object[] row : rows) {
+                adjust((String) row[0], ((Number) row[1]).intValue());
+            }
+            ready = true;
+            logger.info("Author suggestion index built: {} authors, {} keys", authors.size(), prefixes.size());
+        } catch (RuntimeException e) {
+            logger.error("Author suggestion index build failed, suggestions stay on SQL", e);
+            started.set(false);
+        }
+    }
+
+    public void add(String authorName) {
+        adjust(authorName, 1);
+    }
+
+    public void remove(String authorName) {
+        adjust(authorName, -1);
+    }
+
+    private synchronized void adjust(String authorName, int delta) {
+        if (authorName == null || authorName.trim().isEmpty()) {
+            return;
+        }
+        Author author = authors.get(authorName);
+        if (author == null) {
+            if (delta <= 0) {
+                return;
+            }
+            author = new Author(authorName);
+            authors.put(authorName, author);
+            for (String key : keysOf(authorName)) {
+                prefixes.put(key, author);
+            }
+        }
+
+        author.commentCount += delta;
+        if (author.commentCount <= 0) {
+            authors.remove(authorName);
+            for (String key : keysOf(authorName)) {
+                prefixes.remove(key);
+            }
+        }
+        modifications++;
+        updateTopLists(author, delta);
+    }
+
+    /**
+     * Cập nhật top của các prefix đã lưu mà tác giả khớp
+     * Tác giả trong top bị giảm thì bỏ top đó, lần tra sau duyệt lại vì không biết ai đứng kế tiếp
+     */
+    private void updateTopLists(Author author, int delta) {
+        if (topByPrefix.isEmpty()) {
+            return;
+        }
+        for (String prefix : prefixesOf(author.name)) {
+            List<Author> top = topByPrefix.get(prefix);
+            if (top == null) {
+                continue;
+            }
+            boolean listed = top.contains(author);
+            if (delta < 0) {
+                if (listed) {
+                    topByPrefix.remove(prefix);
+                }
+                continue;
+            }
+            // Top chưa đủ TOP_K nghĩa là đã chứa mọi tác giả khớp prefix
+            if (listed || top.size() < TOP_K || BY_WEIGHT.compare(author, top.get(top.size() - 1)) > 0) {
+                List<Author> updated = new ArrayList<>(top);
+                if (!listed) {
+                    updated.add(author);
+                }
+                updated.sort(BY_WEIGHT.reversed());
+                if (updated.size() > TOP_K) {
+                    updated.remove(updated.size() - 1);
+                }
+                topByPrefix.put(prefix, updated);
+            }
+        }
+    }
+
+    /**
+     * Trả về tối đa limit tên tác giả có từ bắt đầu bằng query, nhiều comment nhất trước
+     */
+    public List<String> suggest(String query, int limit) {
+        String prefix = String.join(" ", TextFolding.tokenize(query));
+        if (prefix.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<Author> top = limit > TOP_K ? scan(prefix, limit) : topOf(prefix);
+
+        List<String> suggestions = new ArrayList<>(Math.min(limit, top.size()));
+        for (int i = 0; i < top.size() && suggestions.size() < limit; i++) {
+            suggestions.add(top.get(i).name);
+        }
+        return suggestions;
+    }
+
+    private List<Author> topOf(String prefix) {
+        List<Author> top = topByPrefix.get(prefix);
+        if (top != null) {
+            return top;
+        }
+
+        long before;
+        synchronized (this) {
+            before = modifications;
+        }
+        top = scan(prefix, TOP_K);
+        synchronized (this) {
+            if (modifications == before) {
+                topByPrefix.put(prefix, top);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Duyệt mọi key bắt đầu bằng prefix, trả về tối đa limit tác giả nhiều comment nhất trước
+     */
+    private List<Author> scan(String prefix, int limit) {
+        PriorityQueue<Author> top = new PriorityQueue<>(limit + 1, BY_WEIGHT);
+        Set<Author> seen = new HashSet<>();
+
+        for (Author author : prefixes.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            if (author.commentCount > 0 && seen.add(author)) {
+                top.offer(author);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+
+        List<Author> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(0, top.poll());
+        }
+        return result;
+    }
+
+    private static List<String> keysOf(String authorName) {
+        List<String> tokens = TextFolding.tokenize(authorName);
+        List<String> keys = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())) + KEY_SEPARATOR + authorName);
+        }
+        return keys;
+    }
+
+    /**
+     * Mọi prefix của các key của tác giả, chính là các query (đã chuẩn hóa) khớp với tác giả
+     */
+    private static Set<String> prefixesOf(String authorName) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String key : keysOf(authorName)) {
+            int end = key.indexOf(KEY_SEPARATOR);
+            for (int length = 1; length <= end; length++) {
+                result.add(key.substring(0, length));
+            }
+        }
+        return result;
+    }
+
+    private static class Author {
+        private final String name;
+        private volatile int commentCount;
+
+        Author(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.nasa.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thống kê second-level cache và query cache của Hibernate
+ */
+@Service
+public class CacheStatisticsService {
+
+    private static final String[] REGIONS = {"comment", "like", "comment-likes", "comment-feed"};
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    public Map<String, Object> getCacheStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        result.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        result.put("queryCachePuts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : REGIONS) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics == null) {
+                continue;
+            }
+            Map<String, Object> regionResult = new LinkedHashMap<>();
+            regionResult.put("hits", regionStatistics.getHitCount());
+            regionResult.put("misses", regionStatistics.getMissCount());
+            regionResult.put("puts", regionStatistics.getPutCount());
+            regionResult.put("elementsInMemory", regionStatistics.getElementCountInMemory());
+            regions.put(region, regionResult);
+        }
+        result.put("regions", regions);
+        return result;
+    }
+}
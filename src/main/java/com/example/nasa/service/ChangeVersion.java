@@ -0,0 +1,35 @@
+package com.example.nasa.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phiên bản dữ liệu comment/like, tăng sau mỗi lần ghi đã commit
+ * Dùng làm ETag cho feed và các API đọc: request có If-None-Match khớp được trả 304 trước khi truy cập DB
+ */
+@Component
+public class ChangeVersion {
+
+    // Bắt đầu từ thời điểm khởi động để ETag cũ của client không khớp sau khi restart
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * ETag yếu từ phiên bản hiện tại, ngày hôm nay (filter "today" đổi lúc nửa đêm) và tham số request
+     */
+    public String etag(Object... parameters) {
+        int parametersHash = Arrays.hashCode(parameters);
+        return "W/\"" + Long.toHexString(current()) + "-" + LocalDate.now().toEpochDay()
+                + "-" + Integer.toHexString(parametersHash) + "\"";
+    }
+}
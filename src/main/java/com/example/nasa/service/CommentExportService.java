@@ -0,0 +1,158 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.CommentSummary;
+import com.example.nasa.repository.CommentRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Export comments ra NDJSON hoặc CSV, ghi thẳng từng dòng vào output stream
+ */
+@Service
+public class CommentExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentExportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String CSV_HEADER =
+            "id,author_name,rating,comment_text,comment_date,created_at,image_path,like_count";
+
+    // Không có separator giữa các object ở root (mặc định là dấu cách), mỗi dòng NDJSON chỉ kết thúc bằng '\n'
+    private final JsonFactory jsonFactory = new JsonFactory()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .setRootValueSeparator(null);
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format of(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + value);
+        }
+    }
+
+    /**
+     * Ghi các comment có commentDate trong [from, to] (null = không giới hạn) vào out
+     * Không đóng out; trả về số dòng đã ghi
+     */
+    public long export(Format format, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        long rows;
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            rows = commentRepository.scrollForExport(from, to, comment -> writeCsv(writer, comment));
+        } else {
+            JsonGenerator generator = jsonFactory.createGenerator(writer);
+            rows = commentRepository.scrollForExport(from, to, comment -> writeJson(generator, comment));
+            generator.flush();
+        }
+        writer.flush();
+
+        logger.info("Exported {} comments as {} in {} ms", rows, format, System.currentTimeMillis() - startTime);
+        return rows;
+    }
+
+    private void writeJson(JsonGenerator generator, CommentSummary comment) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", comment.getId());
+        generator.writeStringField("authorName", comment.getAuthorName());
+        generator.writeNumberField("rating", comment.getRating());
+        generator.writeStringField("commentText", comment.getCommentText());
+        generator.writeStringField("commentDate", toString(comment.getCommentDate()));
+        generator.writeStringField("createdAt", toString(comment.getCreatedAt()));
+        generator.writeStringField("imagePath", comment.getImagePath());
+        generator.writeNumberField("likeCount", comment.getLikeCount());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void writeCsv(Writer writer, CommentSummary comment) throws IOException {
+        writer.write(String.valueOf(comment.getId()));
+        writer.write(',');
+        writeCsvField(writer, comment.getAuthorName());
+        writer.write(',');
+        writer.write(String.valueOf(comment.getRating()));
+        writer.write(',');
+        writeCsvField(writer, comment.getCommentText());
+        writer.write(',');
+        writeCsvField(writer, toString(comment.getCommentDate()));
+        writer.write(',');
+        writeCsvField(writer, toString(comment.getCreatedAt()));
+        writer.write(',');
+        writeCsvField(writer, comment.getImagePath());
+        writer.write(',');
+        writer.write(String.valueOf(comment.getLikeCount()));
+        writer.write('\n');
+    }
+
+    /**
+     * Escape theo RFC 4180: bọc trong dấu nháy kép nếu có ký tự đặc biệt
+     */
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
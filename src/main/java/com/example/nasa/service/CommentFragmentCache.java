@@ -0,0 +1,136 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.CommentSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache HTML đã render của phần tĩnh trong comment card (tác giả, sao, nội dung, ảnh, thời gian)
+ * Phần phụ thuộc người xem/trang (nút like, số like, form xóa) vẫn được render mỗi request trong index.html
+ * Entry bị loại khi comment được sửa/xóa; đổi ảnh hoặc có thumbnail mới thì entry tự hết hiệu lực
+ */
+@Component
+public class CommentFragmentCache {
+
+    private static final String TEMPLATE = "comment-card";
+    private static final Set<String> BODY = Collections.singleton("body");
+    private static final Set<String> TIME = Collections.singleton("time");
+
+    @Value("${views.fragment-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${views.fragment-cache.entries:5000}")
+    private int maxEntries;
+
+    @Autowired
+    private SpringTemplateEngine templateEngine;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    private Map<Long, Fragment> fragments;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        fragments = Collections.synchronizedMap(new LinkedHashMap<Long, Fragment>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Fragment> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Header, nội dung và ảnh của comment
+     */
+    public String body(CommentSummary comment, HttpServletRequest request, HttpServletResponse response) {
+        return fragmentOf(comment, request, response).body;
+    }
+
+    /**
+     * Giờ đăng và ngày của comment
+     */
+    public String time(CommentSummary comment, HttpServletRequest request, HttpServletResponse response) {
+        return fragmentOf(comment, request, response).time;
+    }
+
+    public void evict(Long commentId) {
+        fragments.remove(commentId);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("entries", fragments.size());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        return metrics;
+    }
+
+    private Fragment fragmentOf(CommentSummary comment, HttpServletRequest request, HttpServletResponse response) {
+        String thumb = comment.getImagePath() != null && !comment.getImagePath().isEmpty()
+                ? imageVariantService.thumbnail(comment.getImagePath())
+                : null;
+        if (enabled && comment.getId() != null) {
+            Fragment cached = fragments.get(comment.getId());
+            if (cached != null && cached.matches(comment.getImagePath(), thumb)) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+
+        WebContext context = new WebContext(request, response, request.getServletContext(),
+                RequestContextUtils.getLocale(request));
+        context.setVariable("c", comment);
+        // Không dùng @{...}: link expression đi qua response.encodeURL và có thể gắn ;jsessionid của
+        // người xem đầu tiên vào HTML được cache chung cho mọi người
+        context.setVariable("src", request.getContextPath() + "/uploads/"
+                + (thumb != null ? thumb : comment.getImagePath()));
+        context.setVariable("srcset", thumb != null
+                ? imageVariantService.srcset(comment.getImagePath(), request.getContextPath())
+                : null);
+        Fragment fragment = new Fragment(comment.getImagePath(), thumb,
+                templateEngine.process(TEMPLATE, BODY, context),
+                templateEngine.process(TEMPLATE, TIME, context));
+        if (enabled && comment.getId() != null) {
+            fragments.put(comment.getId(), fragment);
+        }
+        return fragment;
+    }
+
+    private static final class Fragment {
+        private final String imagePath;
+        private final String thumb;
+        private final String body;
+        private final String time;
+
+        Fragment(String imagePath, String thumb, String body, String time) {
+            this.imagePath = imagePath;
+            this.thumb = thumb;
+            this.body = body;
+            this.time = time;
+        }
+
+        boolean matches(String currentImagePath, String currentThumb) {
+            return Objects.equals(imagePath, currentImagePath) && Objects.equals(thumb, currentThumb);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.Comment;
+import com.example.nasa.model.ImportProgress;
+import com.example.nasa.repository.CommentRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Import hàng loạt comment từ NDJSON (cùng định dạng với /api/comments/export)
+ * Mỗi chunk được insert bằng JDBC batch và commit riêng, dòng lỗi bị bỏ qua và ghi lại
+ * Body được ghi ra file tạm rồi import trên thread riêng, request trả về ngay
+ */
+@Service
+public class CommentImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentImportService.class);
+
+    @Value("${comments.import.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${comments.import.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CommentSearchIndex searchIndex;
+
+    @Autowired
+    private AuthorSuggestionIndex suggestionIndex;
+
+    @Autowired
+    private LikeLeaderboard likeLeaderboard;
+
+    @Autowired
+    private StatsEngine statsEngine;
+
+    @Autowired
+    private ChangeVersion changeVersion;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    // ParameterMessageInterpolator: message của Comment là chuỗi cố định, không cần EL implementation lúc khởi tạo
+    private final Validator validator = Validation.byDefaultProvider()
+            .configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory()
+            .getValidator();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Một lần import tại một thời điểm, không dùng thread của request hay ApiExecutor
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "comment-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ImportProgress progress;
+
+    /**
+     * Tiến độ của lần import đang chạy hoặc gần nhất, null nếu chưa import lần nào
+     */
+    public ImportProgress getProgress() {
+        return progress;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Ghi body ra file tạm rồi import trên thread comment-import, chỉ cho phép một lần import tại một thời điểm
+     * Trả về tiến độ (RUNNING) ngay khi body đã được nhận xong
+     */
+    public ImportProgress startImport(InputStream body, boolean gzip) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another import is already running");
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile("comments-import-", gzip ? ".ndjson.gz" : ".ndjson");
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+
+            ImportProgress current = new ImportProgress();
+            progress = current;
+            Path spooled = file;
+            try {
+                importExecutor.execute(() -> importFile(spooled, gzip, current));
+            } catch (RejectedExecutionException e) {
+                current.fail("Import executor is shut down");
+                throw e;
+            }
+            return current;
+        } catch (IOException | RuntimeException e) {
+            running.set(false);
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    private void importFile(Path file, boolean gzip, ImportProgress current) {
+        try (InputStream in = gzip
+                ? new GZIPInputStream(Files.newInputStream(file), 64 * 1024)
+                : Files.newInputStream(file)) {
+            importNdjson(in, current);
+        } catch (IOException | RuntimeException e) {
+            // Lỗi trong lúc đọc/insert đã được ghi vào progress và log, ở đây chỉ còn lỗi mở file
+            if (current.getState() == ImportProgress.State.RUNNING) {
+                current.fail(e.getMessage());
+                logger.error("Comment import failed before reading any rows", e);
+            }
+        } finally {
+            running.set(false);
+            statsEngine.reconcile();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Could not delete import file {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Đọc NDJSON từ in và import theo chunk
+     */
+    private void importNdjson(InputStream in, ImportProgress current) throws IOException {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+            List<Comment> chunk = new ArrayList<>(chunkSize);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                current.lineRead();
+
+                Comment comment;
+                try {
+                    comment = parse(line);
+                } catch (IllegalArgumentException e) {
+                    current.reject(lineNumber, e.getMessage());
+                    continue;
+                }
+                Set<ConstraintViolation<Comment>> violations = validator.validate(comment);
+                if (!violations.isEmpty()) {
+                    ConstraintViolation<Comment> violation = violations.iterator().next();
+                    current.reject(lineNumber, violation.getPropertyPath() + " " + violation.getMessage());
+                    continue;
+                }
+
+                chunk.add(comment);
+                if (chunk.size() >= chunkSize) {
+                    commitChunk(chunk, current);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                commitChunk(chunk, current);
+            }
+            current.complete();
+            logger.info("Comment import completed: {} imported, {} rejected, {} rows/s",
+                    current.getImported(), current.getRejected(), current.getRowsPerSecond());
+        } catch (IOException | RuntimeException e) {
+            current.fail(e.getMessage());
+            logger.error("Comment import failed after {} imported rows", current.getImported(), e);
+            throw e;
+        }
+    }
+
+    private void commitChunk(List<Comment> chunk, ImportProgress current) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> {
+            commentRepository.insertBatch(chunk, batchSize);
+            return null;
+        });
+
+        // Đã commit: đưa các comment mới vào những index in-memory
+        for (Comment comment : chunk) {
+            searchIndex.index(comment);
+            suggestionIndex.add(comment.getAuthorName());
+            likeLeaderboard.update(comment.getId(), comment.getLikeCount());
+        }
+        changeVersion.bump();
+        current.chunkCommitted(chunk.size());
+        logger.info("Comment import: {} rows committed ({} rows/s)",
+                current.getImported(), current.getRowsPerSecond());
+    }
+
+    /**
+     * Đọc một dòng NDJSON thành Comment; id và likeCount bị bỏ qua (id mới, like không được import)
+     */
+    private Comment parse(String line) {
+        Comment comment = new Comment();
+        boolean hasCommentDate = false;
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "authorName":
+                        comment.setAuthorName(parser.getText());
+                        break;
+                    case "rating":
+                        comment.setRating(parser.getValueAsInt());
+                        break;
+                    case "commentText":
+                        comment.setCommentText(parser.getText());
+                        break;
+                    case "commentDate":
+                        comment.setCommentDate(LocalDate.parse(parser.getText()));
+                        hasCommentDate = true;
+                        break;
+                    case "createdAt":
+                        comment.setCreatedAt(LocalDateTime.parse(parser.getText()));
+                        break;
+                    case "imagePath":
+                        comment.setImagePath(parser.getText());
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage(), e);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid date: " + e.getParsedString(), e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+
+        if (!hasCommentDate) {
+            comment.setCommentDate(comment.getCreatedAt().toLocalDate());
+        }
+        return comment;
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.Comment;
+import com.example.nasa.model.Page;
+import com.example.nasa.model.Pageable;
+import com.example.nasa.repository.CommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Inverted index in-memory cho authorName và commentText
+ * Build khi khởi động, cập nhật dần từ CommentService.saveComment/deleteComment
+ */
+@Component
+public class CommentSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentSearchIndex.class);
+
+    private static final int AUTHOR_WEIGHT = 3;
+    private static final int TEXT_WEIGHT = 1;
+    private static final double EXACT_TOKEN_BOOST = 2.0;
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LikeLeaderboard likeLeaderboard;
+
+    // token -> (commentId -> trọng số), sorted để hỗ trợ tìm theo prefix
+    private final ConcurrentSkipListMap<String, ConcurrentMap<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentMap<Long, Document> documents = new ConcurrentHashMap<>();
+
+    // Comment bị xóa trong lúc đang build, để build không thêm lại
+    private final Set<Long> deletedWhileBuilding = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean ready;
+
+    /**
+     * Index chỉ được dùng khi đã build xong
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Các kiểu sort mà index tự xử lý được
+     */
+    public boolean supports(Pageable pageable) {
+        switch (pageable.getSortBy()) {
+            case "relevance":
+            case "createdAt":
+            case "rating":
+                return true;
+            case "likes":
+            case "likeCount":
+                // Số like không nằm trong index, lấy từ leaderboard
+                return likeLeaderboard.isReady();
+            default:
+                return false;
+        }
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void startBuild() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread builder = new Thread(this::build, "comment-search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void build() {
+        long startTime = System.currentTimeMillis();
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+
+            long lastId = 0L;
+            while (true) {
+                final long afterId = lastId;
+                List<Object[]> batch = transactionTemplate.execute(
+                        status -> commentRepository.findSearchDocuments(afterId, BUILD_BATCH_SIZE));
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : batch) {
+                    Long id = (Long) row[0];
+                    // Bỏ qua bản ghi đã được cập nhật trực tiếp hoặc đã bị xóa trong lúc build
+                    if (!documents.containsKey(id) && !deletedWhileBuilding.contains(id)) {
+                        add(id, (String) row[1], (String) row[2], (LocalDateTime) row[3], (Integer) row[4]);
+                    }
+                    lastId = id;
+                }
+            }
+
+            deletedWhileBuilding.clear();
+            ready = true;
+            logger.info("Comment search index built: {} comments, {} tokens in {} ms",
+                    documents.size(), postings.size(), System.currentTimeMillis() - startTime);
+        } catch (RuntimeException e) {
+            logger.error("Comment search index build failed, search stays on SQL", e);
+            started.set(false);
+        }
+    }
+
+    // ============== INCREMENTAL UPDATES ==============
+
+    public void index(Comment comment) {
+        add(comment.getId(), comment.getAuthorName(), comment.getCommentText(),
+                comment.getCreatedAt(), comment.getRating());
+    }
+
+    public synchronized void remove(Long commentId) {
+        if (!ready) {
+            deletedWhileBuilding.add(commentId);
+        }
+        removeDocument(commentId);
+    }
+
+    private void removeDocument(Long commentId) {
+        Document document = documents.remove(commentId);
+        if (document == null) {
+            return;
+        }
+        for (String token : document.tokens) {
+            postings.computeIfPresent(token, (key, ids) -> {
+                ids.remove(commentId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private synchronized void add(Long id, String authorName, String commentText,
+                                  LocalDateTime createdAt, Integer rating) {
+        removeDocument(id);
+
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : TextFolding.tokenize(authorName)) {
+            weights.merge(token, AUTHOR_WEIGHT, Integer::sum);
+        }
+        for (String token : TextFolding.tokenize(commentText)) {
+            weights.merge(token, TEXT_WEIGHT, Integer::sum);
+        }
+
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), key -> new ConcurrentHashMap<>())
+                    .put(id, entry.getValue());
+        }
+        documents.put(id, new Document(id, new HashSet<>(weights.keySet()), createdAt,
+                rating != null ? rating : 0));
+    }
+
+    // ============== SEARCH ==============
+
+    /**
+     * Tìm kiếm và trả về một trang id comment đã sắp xếp
+     * Mọi token trong query đều phải khớp, mỗi token được so khớp theo prefix
+     */
+    public Page<Long> search(String searchTerm, Pageable pageable) {
+        List<String> terms = TextFolding.tokenize(searchTerm);
+        Map<Long, Double> scores = terms.isEmpty() ? new HashMap<>() : null;
+        int documentCount = Math.max(1, documents.size());
+
+        for (String term : terms) {
+            Map<Long, Double> termScores = new HashMap<>();
+            ConcurrentNavigableMap<String, ConcurrentMap<Long, Integer>> matches =
+                    postings.subMap(term, true, term + Character.MAX_VALUE, true);
+            for (Map.Entry<String, ConcurrentMap<Long, Integer>> match : matches.entrySet()) {
+                double idf = Math.log(1.0 + (double) documentCount / match.getValue().size());
+                double boost = match.getKey().equals(term) ? EXACT_TOKEN_BOOST : 1.0;
+                for (Map.Entry<Long, Integer> posting : match.getValue().entrySet()) {
+                    termScores.merge(posting.getKey(), posting.getValue() * idf * boost, Double::sum);
+                }
+            }
+
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        boolean byLikes = isLikeSort(pageable);
+        List<Hit> hits = new ArrayList<>(scores.size());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            Document document = documents.get(entry.getKey());
+            if (document != null) {
+                // Chụp số like trước khi sort, leaderboard có thể đổi trong lúc sort
+                Integer likeCount = byLikes ? likeLeaderboard.likeCount(document.id) : null;
+                hits.add(new Hit(document, entry.getValue(), likeCount != null ? likeCount : 0));
+            }
+        }
+        hits.sort(comparator(pageable));
+
+        int from = Math.min(pageable.getOffset(), hits.size());
+        int to = Math.min(from + pageable.getSize(), hits.size());
+        List<Long> ids = new ArrayList<>(to - from);
+        for (Hit hit : hits.subList(from, to)) {
+            ids.add(hit.document.id);
+        }
+        return new Page<>(ids, pageable.getPage(), pageable.getSize(), hits.size());
+    }
+
+    private Comparator<Hit> comparator(Pageable pageable) {
+        Comparator<Hit> newestFirst = Comparator.<Hit, LocalDateTime>comparing(hit -> hit.document.createdAt)
+                .thenComparing(hit -> hit.document.id)
+                .reversed();
+        boolean ascending = "ASC".equalsIgnoreCase(pageable.getDirection());
+
+        switch (pageable.getSortBy()) {
+            case "likes":
+            case "likeCount":
+                // Cùng thứ tự với leaderboard: cùng số like thì id lớn trước
+                Comparator<Hit> byLikes = Comparator.<Hit>comparingInt(hit -> hit.likeCount)
+                        .thenComparing(hit -> hit.document.id);
+                return ascending ? byLikes : byLikes.reversed();
+            case "rating":
+                Comparator<Hit> byRating = Comparator.comparingInt(hit -> hit.document.rating);
+                return (ascending ? byRating : byRating.reversed()).thenComparing(newestFirst);
+            case "createdAt":
+                return ascending ? newestFirst.reversed() : newestFirst;
+            case "relevance":
+            default:
+                return Comparator.<Hit>comparingDouble(hit -> hit.score).reversed().thenComparing(newestFirst);
+        }
+    }
+
+    private static boolean isLikeSort(Pageable pageable) {
+        return "likes".equals(pageable.getSortBy()) || "likeCount".equals(pageable.getSortBy());
+    }
+
+    private static class Document {
+        private final Long id;
+        private final Set<String> tokens;
+        private final LocalDateTime createdAt;
+        private final int rating;
+
+        Document(Long id, Set<String> tokens, LocalDateTime createdAt, int rating) {
+            this.id = id;
+            this.tokens = tokens;
+            this.createdAt = createdAt;
+            this.rating = rating;
+        }
+    }
+
+    private static class Hit {
+        private final Document document;
+        private final double score;
+        private final int likeCount;
+
+        Hit(Document document, double score, int likeCount) {
+            this.document = document;
+            this.score = score;
+            this.likeCount = likeCount;
+        }
+    }
+}
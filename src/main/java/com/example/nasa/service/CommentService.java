@@ -1,35 +1,120 @@
 package com.example.nasa.service;
 
 import com.example.nasa.model.Comment;
+import com.example.nasa.model.CommentSummary;
 import com.example.nasa.model.Page;
 import com.example.nasa.model.Pageable;
+import com.example.nasa.model.StatsSnapshot;
 import com.example.nasa.repository.CommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @Transactional
 public class CommentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CommentService.class);
+
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private CommentSearchIndex searchIndex;
+
+    @Autowired
+    private AuthorSuggestionIndex suggestionIndex;
+
+    @Autowired
+    private LikeMembershipIndex likeMembershipIndex;
+
+    @Autowired
+    private StatsEngine statsEngine;
+
+    @Autowired
+    private LikeLeaderboard likeLeaderboard;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private ChangeVersion changeVersion;
+
+    @Autowired
+    private CommentFragmentCache fragmentCache;
+
+    /**
+     * Căn lại bảng cấp id với MAX(id) khi khởi động, trước khi có comment mới được insert
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void alignIdGenerator() {
+        commentRepository.alignIdGenerator();
+    }
+
     public void saveComment(Comment comment) {
         commentRepository.save(comment);
+        AfterCommit.run(() -> {
+            searchIndex.index(comment);
+            suggestionIndex.add(comment.getAuthorName());
+            statsEngine.commentAdded(CommentSummary.from(comment));
+            likeLeaderboard.update(comment.getId(), comment.getLikeCount());
+            changeVersion.bump();
+        });
     }
 
     public void updateComment(Comment comment) {
         commentRepository.update(comment);
+        AfterCommit.run(() -> {
+            searchIndex.index(comment);
+            fragmentCache.evict(comment.getId());
+            changeVersion.bump();
+        });
     }
 
     public void deleteComment(Long id) {
         Comment comment = commentRepository.findById(id);
         if (comment != null) {
+            CommentSummary deleted = CommentSummary.from(comment);
             commentRepository.delete(comment);
+            AfterCommit.run(() -> {
+                searchIndex.remove(id);
+                suggestionIndex.remove(deleted.getAuthorName());
+                likeMembershipIndex.evict(id);
+                statsEngine.commentDeleted(deleted);
+                likeLeaderboard.remove(id);
+                fragmentCache.evict(id);
+                changeVersion.bump();
+                releaseImage(deleted.getImagePath());
+            });
+        }
+    }
+
+    /**
+     * Xóa ảnh (và các variant) nếu không còn comment nào dùng nội dung đó
+     */
+    private void releaseImage(String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) {
+            return;
+        }
+        try {
+            if (fileStorageService.deleteFile(imagePath)) {
+                imageVariantService.deleteVariants(imagePath);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not release image {}: {}", imagePath, e.getMessage());
         }
     }
 
@@ -60,56 +145,127 @@ public class CommentService {
 
     // ============== PAGINATION METHODS ==============
 
+    // Các trang comment trả về CommentSummary (projection chỉ đọc), không phải entity managed
+
     /**
      * Get all comments với pagination
      */
     @Transactional(readOnly = true)
-    public Page<Comment> getAllCommentsWithPagination(Pageable pageable) {
-        return commentRepository.findAllWithPagination(pageable);
+    public Page<CommentSummary> getAllCommentsWithPagination(Pageable pageable) {
+        return withLiveLikeCounts(commentRepository.findAllWithPagination(pageable));
     }
 
     /**
      * Get comments by date với pagination
      */
     @Transactional(readOnly = true)
-    public Page<Comment> getCommentsByDateWithPagination(LocalDate date, Pageable pageable) {
-        return commentRepository.findByDateWithPagination(date, pageable);
+    public Page<CommentSummary> getCommentsByDateWithPagination(LocalDate date, Pageable pageable) {
+        return withLiveLikeCounts(commentRepository.findByDateWithPagination(date, pageable));
     }
 
     /**
      * Get today's comments với pagination
      */
     @Transactional(readOnly = true)
-    public Page<Comment> getTodayCommentsWithPagination(Pageable pageable) {
-        return commentRepository.findTodayCommentsWithPagination(pageable);
+    public Page<CommentSummary> getTodayCommentsWithPagination(Pageable pageable) {
+        return withLiveLikeCounts(commentRepository.findTodayCommentsWithPagination(pageable));
     }
 
     /**
      * Get comments sorted by likes với pagination
+     * Thứ tự lấy từ leaderboard in-memory, chỉ load các comment của trang theo id
+     */
+    @Transactional(readOnly = true)
+    public Page<CommentSummary> getCommentsSortedByLikes(Pageable pageable) {
+        if (likeLeaderboard.isReady()) {
+            Page<Long> ids = likeLeaderboard.page(pageable);
+            List<CommentSummary> content = commentRepository.findByIds(ids.getContent());
+            return withLiveLikeCounts(
+                    new Page<>(content, ids.getPageNumber(), ids.getPageSize(), ids.getTotalElements()));
+        }
+        return withLiveLikeCounts(commentRepository.findAllSortedByLikes(pageable));
+    }
+
+    /**
+     * Get all comments với keyset pagination
      */
     @Transactional(readOnly = true)
-    public Page<Comment> getCommentsSortedByLikes(Pageable pageable) {
-        return commentRepository.findAllSortedByLikes(pageable);
+    public Page<CommentSummary> getAllCommentsWithCursor(Pageable pageable) {
+        return withLiveLikeCounts(commentRepository.findAllWithCursor(pageable));
+    }
+
+    /**
+     * Get comments by date với keyset pagination
+     */
+    @Transactional(readOnly = true)
+    public Page<CommentSummary> getCommentsByDateWithCursor(LocalDate date, Pageable pageable) {
+        return withLiveLikeCounts(commentRepository.findByDateWithCursor(date, pageable));
     }
 
     // ============== SEARCH METHODS ==============
 
     /**
      * Search comments với pagination
+     * Dùng inverted index in-memory, chỉ fallback về SQL khi index đang build
      */
     @Transactional(readOnly = true)
-    public Page<Comment> searchCommentsWithPagination(String searchTerm, Pageable pageable) {
-        return commentRepository.searchComments(searchTerm, pageable);
+    public Page<CommentSummary> searchCommentsWithPagination(String searchTerm, Pageable pageable) {
+        if (searchIndex.isReady() && searchIndex.supports(pageable)) {
+            Page<Long> ids = searchIndex.search(searchTerm, pageable);
+            List<CommentSummary> content = commentRepository.findByIds(ids.getContent());
+            return withLiveLikeCounts(
+                    new Page<>(content, ids.getPageNumber(), ids.getPageSize(), ids.getTotalElements()));
+        }
+        return withLiveLikeCounts(commentRepository.searchComments(searchTerm, pageable));
+    }
+
+    /**
+     * Thay like_count (có thể lấy từ query cache) bằng giá trị hiện tại của leaderboard,
+     * đã gồm cả các toggle còn nằm trong write-behind buffer
+     */
+    private Page<CommentSummary> withLiveLikeCounts(Page<CommentSummary> page) {
+        if (!page.hasContent()) {
+            return page;
+        }
+        List<CommentSummary> content = new ArrayList<>(page.getContent().size());
+        for (CommentSummary comment : page.getContent()) {
+            Integer likeCount = likeLeaderboard.likeCount(comment.getId());
+            content.add(likeCount != null && likeCount != comment.getLikeCount()
+                    ? comment.withLikeCount(likeCount)
+                    : comment);
+        }
+        page.setContent(content);
+        return page;
     }
 
     /**
      * Get search suggestions for autocomplete
+     * Trả lời từ index in-memory, không mở transaction; chỉ query DB khi index chưa sẵn sàng
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<String> getSearchSuggestions(String searchTerm, int limit) {
+        if (suggestionIndex.isReady()) {
+            return suggestionIndex.suggest(searchTerm, limit);
+        }
         return commentRepository.getSearchSuggestions(searchTerm, limit);
     }
 
+    /**
+     * Snapshot thống kê hiện tại, không truy cập DB
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public StatsSnapshot getStatsSnapshot() {
+        return statsEngine.getSnapshot();
+    }
+
+    /**
+     * Thế hệ của snapshot thống kê, đổi mỗi khi nội dung snapshot đổi
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public long getStatsGeneration() {
+        return statsEngine.getGeneration();
+    }
+
     /**
      * Count all comments
      */
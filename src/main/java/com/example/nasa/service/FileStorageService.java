@@ -1,56 +1,336 @@
 package com.example.nasa.service;
 
+import com.example.nasa.repository.CommentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Lưu ảnh upload theo nội dung (content-addressed): tên file là SHA-256 của nội dung,
+ * chia thư mục theo prefix của hash (ab/cd/abcd...jpg)
+ * Ảnh giống nhau chỉ lưu một lần; file chỉ bị xóa khi không còn comment nào tham chiếu
+ */
 @Service
 public class FileStorageService {
 
+    private static final String TEMP_DIR = ".tmp";
+
+    private static final int LOCK_STRIPES = 64;
+
+    // Đủ cho chữ ký của JPEG, PNG, GIF và WebP
+    private static final int SNIFF_LENGTH = 12;
+
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
 
+    // Không xóa nội dung vừa được upload lại trong khoảng này (comment mới có thể chưa commit)
+    @Value("${file.delete-grace-seconds:300}")
+    private long deleteGraceSeconds;
+
+    // Đường dẫn -> thời điểm nội dung đã có được upload lại lần gần nhất
+    private final ConcurrentMap<String, Long> recentlyReused = new ConcurrentHashMap<>();
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MappedFileCache mappedFileCache;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
     public String storeFile(MultipartFile file) throws IOException {
+        if (file instanceof StoredMultipartFile) {
+            // Đã được ghi thẳng vào store khi parse request
+            return ((StoredMultipartFile) file).getStoredPath();
+        }
         if (file.isEmpty()) {
             throw new IOException("Cannot store empty file");
         }
+        try (InputStream in = file.getInputStream()) {
+            return storeImage(in);
+        }
+    }
 
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    /**
+     * Ghi một part multipart vào store ngay khi đọc từ request (không qua file tạm của container)
+     * Part rỗng (không chọn file) hoặc không phải ảnh được trả về nhưng không được lưu
+     */
+    public StoredMultipartFile storeUpload(String fieldName, String originalFilename, InputStream content)
+            throws IOException {
+        byte[] header = new byte[SNIFF_LENGTH];
+        int headerLength = readHeader(content, header);
+        if (headerLength == 0) {
+            return StoredMultipartFile.empty(fieldName, originalFilename);
+        }
+        String extension = sniffExtension(header, headerLength);
+        if (extension == null) {
+            return StoredMultipartFile.rejected(fieldName, originalFilename, "Unsupported image type");
         }
+        String relativePath = store(new SequenceInputStream(
+                new ByteArrayInputStream(header, 0, headerLength), content), extension);
+        Path stored = loadFile(relativePath);
+        return StoredMultipartFile.stored(fieldName, originalFilename, contentTypeOf(extension),
+                Files.size(stored), relativePath, stored);
+    }
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+    /**
+     * Lưu ảnh, phần mở rộng lấy theo nội dung (magic bytes) chứ không theo tên file client gửi
+     */
+    public String storeImage(InputStream content) throws IOException {
+        byte[] header = new byte[SNIFF_LENGTH];
+        int headerLength = readHeader(content, header);
+        if (headerLength == 0) {
+            throw new IOException("Cannot store empty file");
         }
-        String newFilename = UUID.randomUUID().toString() + fileExtension;
+        String extension = sniffExtension(header, headerLength);
+        if (extension == null) {
+            throw new IOException("Unsupported image type");
+        }
+        return store(new SequenceInputStream(new ByteArrayInputStream(header, 0, headerLength), content), extension);
+    }
 
-        // Copy file to upload directory
-        Path targetLocation = uploadPath.resolve(newFilename);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Ghi nội dung ra file tạm và tính hash trong cùng một lần đọc, rồi move vào vị trí theo hash
+     * Trả về đường dẫn tương đối (lưu vào Comment.imagePath)
+     */
+    public String store(InputStream content, String extension) throws IOException {
+        Path tempDir = root().resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (DigestInputStream in = new DigestInputStream(content, digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return moveIntoStore(temp, toHex(digest.digest()), extension);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-        return newFilename;
+    /**
+     * Đưa một file đã có vào store (dùng khi migrate file cũ)
+     * File nguồn được giữ nguyên; nội dung được hard link (hoặc copy) sang vị trí mới
+     */
+    public String storeExisting(Path source) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (in.read(buffer) != -1) {
+                // Chỉ đọc để tính hash
+            }
+        }
+        String extension = extensionOf(source.getFileName().toString());
+        Path tempDir = root().resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        Path temp = tempDir.resolve("migrate-" + System.nanoTime() + ".tmp");
+        try {
+            try {
+                Files.createLink(temp, source);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return moveIntoStore(temp, toHex(digest.digest()), extension);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
     }
 
-    public void deleteFile(String filename) throws IOException {
-        if (filename != null && !filename.isEmpty()) {
-            Path filePath = Paths.get(uploadDir).resolve(filename);
-            Files.deleteIfExists(filePath);
+    private String moveIntoStore(Path temp, String hash, String extension) throws IOException {
+        String relativePath = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+        Path target = root().resolve(relativePath);
+        synchronized (lockFor(relativePath)) {
+            if (Files.exists(target)) {
+                // Đã có cùng nội dung: bỏ file tạm, đánh dấu vừa được dùng lại để không bị xóa
+                recentlyReused.put(relativePath, System.currentTimeMillis());
+                return relativePath;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Process khác vừa ghi cùng nội dung
+            }
+        }
+        return relativePath;
+    }
+
+    /**
+     * Xóa nội dung nếu không còn comment nào tham chiếu
+     * Gọi sau khi comment đã bị xóa (đã commit); trả về true nếu file thực sự bị xóa
+     */
+    public boolean deleteFile(String filename) throws IOException {
+        if (filename == null || filename.isEmpty()) {
+            return false;
+        }
+        Path filePath = loadFile(filename);
+        synchronized (lockFor(filename)) {
+            if (!Files.exists(filePath)) {
+                return false;
+            }
+            long cutoff = System.currentTimeMillis() - deleteGraceSeconds * 1000;
+            recentlyReused.values().removeIf(reusedAt -> reusedAt < cutoff);
+            if (recentlyReused.containsKey(filename) || countReferences(filename) > 0) {
+                return false;
+            }
+            mappedFileCache.evict(filePath);
+            return Files.deleteIfExists(filePath);
         }
     }
 
     public Path loadFile(String filename) {
-        return Paths.get(uploadDir).resolve(filename);
+        Path root = root();
+        Path path = root.resolve(filename).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid file path: " + filename);
+        }
+        return path;
+    }
+
+    /**
+     * File cũ (tên UUID, nằm thẳng trong thư mục upload) chưa được đưa vào store
+     */
+    public List<Path> findLegacyFiles() throws IOException {
+        List<Path> legacy = new ArrayList<>();
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return legacy;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file) && !file.getFileName().toString().startsWith(".")) {
+                    legacy.add(file);
+                }
+            }
+        }
+        return legacy;
+    }
+
+    private long countReferences(String filename) {
+        // Transaction riêng: có thể được gọi sau khi transaction xóa comment đã commit
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        Long count = transactionTemplate.execute(status -> commentRepository.countByImagePath(filename));
+        return count != null ? count : 0L;
+    }
+
+    private Object lockFor(String filename) {
+        return locks[(filename.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private Path root() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Phần mở rộng đã chuẩn hóa (".jpg"), rỗng nếu không hợp lệ
+     */
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.') + 1)
+                .toLowerCase(Locale.ROOT);
+        if ("jpeg".equals(extension)) {
+            extension = "jpg";
+        }
+        return extension.matches("[a-z0-9]{1,8}") ? "." + extension : "";
+    }
+
+    private static int readHeader(InputStream in, byte[] header) throws IOException {
+        int length = 0;
+        while (length < header.length) {
+            int read = in.read(header, length, header.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * Phần mở rộng theo chữ ký đầu file, null nếu không phải ảnh được hỗ trợ
+     */
+    private static String sniffExtension(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xff) == 0xff && (header[1] & 0xff) == 0xd8 && (header[2] & 0xff) == 0xff) {
+            return ".jpg";
+        }
+        if (length >= 8 && (header[0] & 0xff) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G'
+                && header[4] == '\r' && header[5] == '\n' && header[6] == 0x1a && header[7] == '\n') {
+            return ".png";
+        }
+        if (length >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8'
+                && (header[4] == '7' || header[4] == '9') && header[5] == 'a') {
+            return ".gif";
+        }
+        if (length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return ".webp";
+        }
+        return null;
+    }
+
+    private static String contentTypeOf(String extension) {
+        switch (extension) {
+            case ".jpg":
+                return "image/jpeg";
+            case ".png":
+                return "image/png";
+            case ".gif":
+                return "image/gif";
+            default:
+                return "image/webp";
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xf, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xf, 16);
+        }
+        return new String(hex);
     }
 }
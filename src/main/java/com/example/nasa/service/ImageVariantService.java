@@ -0,0 +1,339 @@
+package com.example.nasa.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tạo thumbnail và các bản thu nhỏ theo chiều rộng cho ảnh upload, chạy nền trên executor có giới hạn
+ * Chỉ dùng ImageIO (không cần thư viện native); ảnh chưa có variant thì view dùng ảnh gốc
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final String VARIANT_DIR = "variants";
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private static final int[] NO_VARIANTS = new int[0];
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    // Thumbnail là width nhỏ nhất
+    @Value("${images.variants.widths:320,640,1280}")
+    private int[] widths;
+
+    @Value("${images.variants.threads:2}")
+    private int threads;
+
+    @Value("${images.variants.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${images.variants.cache-entries:10000}")
+    private int cacheEntries;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ChangeVersion changeVersion;
+
+    private ThreadPoolExecutor executor;
+
+    // filename -> các width đã có variant (mảng rỗng = ảnh quá nhỏ hoặc không đọc được, dùng ảnh gốc)
+    private Map<String, int[]> variants;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        widths = Arrays.stream(widths).filter(width -> width > 0).sorted().distinct().toArray();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+
+        variants = Collections.synchronizedMap(new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > cacheEntries;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Đưa ảnh vào hàng đợi tạo variant; bỏ qua nếu đang xử lý hoặc hàng đợi đầy
+     */
+    public void generateAsync(String filename) {
+        if (filename == null || filename.isEmpty() || !inFlight.add(filename)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(filename);
+                } finally {
+                    inFlight.remove(filename);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Hàng đợi đầy: view tiếp tục dùng ảnh gốc, lần render sau sẽ thử lại
+            inFlight.remove(filename);
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * Đường dẫn (tương đối với /uploads/) của thumbnail, null nếu chưa có
+     */
+    public String thumbnail(String filename) {
+        int[] available = variantsOf(filename);
+        return available != null && available.length > 0 ? variantName(filename, available[0]) : null;
+    }
+
+    /**
+     * Giá trị srcset cho các variant đã có, null nếu chưa có
+     */
+    public String srcset(String filename, String contextPath) {
+        int[] available = variantsOf(filename);
+        if (available == null || available.length == 0) {
+            return null;
+        }
+        StringBuilder srcset = new StringBuilder();
+        for (int width : available) {
+            if (srcset.length() > 0) {
+                srcset.append(", ");
+            }
+            srcset.append(contextPath).append("/uploads/").append(variantName(filename, width))
+                    .append(' ').append(width).append('w');
+        }
+        return srcset.toString();
+    }
+
+    /**
+     * Xóa các variant khi ảnh gốc bị xóa
+     */
+    public void deleteVariants(String filename) throws IOException {
+        if (filename == null || filename.isEmpty()) {
+            return;
+        }
+        variants.remove(filename);
+        for (int width : widths) {
+            Files.deleteIfExists(variantPath(filename, width));
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("generated", generated.get());
+        metrics.put("failed", failed.get());
+        metrics.put("rejected", rejected.get());
+        return metrics;
+    }
+
+    private int[] variantsOf(String filename) {
+        if (filename == null || filename.isEmpty()) {
+            return null;
+        }
+        int[] known = variants.get(filename);
+        if (known != null) {
+            return known;
+        }
+
+        // Chưa có trong bộ nhớ (ảnh cũ hoặc sau khi restart): kiểm tra trên đĩa, nếu chưa có thì tạo nền
+        List<Integer> onDisk = new ArrayList<>();
+        for (int width : widths) {
+            if (Files.exists(variantPath(filename, width))) {
+                onDisk.add(width);
+            }
+        }
+        if (onDisk.isEmpty()) {
+            generateAsync(filename);
+            return null;
+        }
+        int[] available = onDisk.stream().mapToInt(Integer::intValue).toArray();
+        variants.put(filename, available);
+        return available;
+    }
+
+    private void generate(String filename) {
+        Path source = fileStorageService.loadFile(filename);
+        if (!Files.isRegularFile(source)) {
+            return;
+        }
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                variants.put(filename, NO_VARIANTS);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int[] targets = Arrays.stream(widths).filter(width -> width < sourceWidth).toArray();
+                if (targets.length == 0) {
+                    // Ảnh đã nhỏ hơn thumbnail, dùng luôn ảnh gốc
+                    variants.put(filename, NO_VARIANTS);
+                    return;
+                }
+
+                // Subsampling khi decode: ảnh đọc vào chỉ rộng cỡ variant lớn nhất (không nhỏ hơn),
+                // không giữ toàn bộ ảnh gốc độ phân giải cao trong heap
+                int largest = targets[targets.length - 1];
+                int subsampling = Math.max(1, sourceWidth / largest);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                boolean png = isPng(filename);
+                int imageType = png ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+                Files.createDirectories(variantPath(filename, targets[0]).getParent());
+
+                // Từ lớn đến nhỏ, mỗi variant được thu nhỏ từ variant trước đó
+                for (int i = targets.length - 1; i >= 0; i--) {
+                    image = scale(image, targets[i], imageType);
+                    write(image, variantPath(filename, targets[i]), png);
+                }
+                variants.put(filename, targets);
+                generated.incrementAndGet();
+                // Trang đã render trước đó còn dùng ảnh gốc: đổi ETag để client tải lại với thumbnail/srcset mới
+                changeVersion.bump();
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Ví dụ JPEG CMYK: ImageIO không đọc được, giữ ảnh gốc
+            failed.incrementAndGet();
+            variants.put(filename, NO_VARIANTS);
+            logger.warn("Could not generate variants for {}: {}", filename, e.getMessage());
+        }
+    }
+
+    /**
+     * Thu nhỏ theo từng bước tối đa 1/2 để giữ chất lượng với nội suy bilinear
+     */
+    private static BufferedImage scale(BufferedImage source, int targetWidth, int imageType) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            int nextWidth = Math.max(targetWidth, width / 2);
+            int nextHeight = Math.max(1, (int) Math.round((double) height * nextWidth / width));
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, imageType);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                // JPEG không có alpha: nền trắng cho phần trong suốt
+                Color background = imageType == BufferedImage.TYPE_INT_RGB ? Color.WHITE : null;
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, background, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+            width = nextWidth;
+            height = nextHeight;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    /**
+     * Ghi ra file tạm rồi move, để request không bao giờ đọc phải variant ghi dở
+     */
+    private static void write(BufferedImage image, Path target, boolean png) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".variant-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(png ? "png" : "jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (!png) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(JPEG_QUALITY);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path variantPath(String filename, int width) {
+        return Paths.get(uploadDir).resolve(variantName(filename, width));
+    }
+
+    /**
+     * variants/{tên gốc}-{width}w.{jpg|png}
+     */
+    private static String variantName(String filename, int width) {
+        int dot = filename.lastIndexOf('.');
+        String base = dot > 0 ? filename.substring(0, dot) : filename;
+        return VARIANT_DIR + "/" + base + "-" + width + "w." + (isPng(filename) ? "png" : "jpg");
+    }
+
+    private static boolean isPng(String filename) {
+        String lower = filename.toLowerCase();
+        return lower.endsWith(".png") || lower.endsWith(".gif");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.nasa.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram độ trễ với bucket cố định, ghi nhận không cấp phát bộ nhớ (chỉ cộng LongAdder)
+ * Bucket giống mặc định của Prometheus client, thêm 0.5ms cho các đường đọc in-memory
+ */
+public final class LatencyHistogram {
+
+    static final double[] BOUNDS_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            BOUNDS_NANOS[i] = (long) (BOUNDS_SECONDS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private final String label;
+
+    // Bucket cuối là +Inf
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    LatencyHistogram(String label) {
+        this.label = label;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos, boolean error) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Số lần ghi nhận cộng dồn theo bucket (định dạng "le" của Prometheus), phần tử cuối là tổng
+     */
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    double sumSeconds() {
+        return sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    long errorCount() {
+        return errors.sum();
+    }
+}
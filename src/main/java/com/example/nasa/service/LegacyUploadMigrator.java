@@ -0,0 +1,103 @@
+package com.example.nasa.service;
+
+import com.example.nasa.repository.CommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Chuyển ảnh upload cũ (UUID + đuôi, nằm thẳng trong thư mục upload) sang store theo nội dung
+ * Chạy nền khi khởi động; file cũ chỉ bị xóa sau khi comment đã trỏ sang đường dẫn mới
+ * File không còn comment nào dùng thì xóa luôn, không đưa vào store
+ */
+@Component
+public class LegacyUploadMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyUploadMigrator.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private StatsEngine statsEngine;
+
+    @Autowired
+    private ChangeVersion changeVersion;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void startMigration() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread migrator = new Thread(this::migrate, "upload-migration");
+        migrator.setDaemon(true);
+        migrator.start();
+    }
+
+    private void migrate() {
+        List<Path> legacyFiles;
+        try {
+            legacyFiles = fileStorageService.findLegacyFiles();
+        } catch (IOException e) {
+            logger.error("Could not list legacy uploads", e);
+            return;
+        }
+        if (legacyFiles.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int migrated = 0;
+        int orphaned = 0;
+        for (Path file : legacyFiles) {
+            String oldPath = file.getFileName().toString();
+            try {
+                Long references = transactionTemplate.execute(status -> commentRepository.countByImagePath(oldPath));
+                if (references == null || references == 0) {
+                    // Comment đã bị xóa nhưng file còn sót lại: đưa vào store chỉ tạo thêm một file mồ côi
+                    Files.deleteIfExists(file);
+                    imageVariantService.deleteVariants(oldPath);
+                    orphaned++;
+                    continue;
+                }
+
+                String newPath = fileStorageService.storeExisting(file);
+                transactionTemplate.execute(status -> commentRepository.replaceImagePath(oldPath, newPath));
+                changeVersion.bump();
+                Files.deleteIfExists(file);
+                imageVariantService.deleteVariants(oldPath);
+                migrated++;
+            } catch (IOException | RuntimeException e) {
+                // Ví dụ file vừa bị xóa cùng comment; lần khởi động sau sẽ thử lại
+                logger.warn("Could not migrate upload {}: {}", oldPath, e.getMessage());
+            }
+        }
+
+        // Snapshot thống kê giữ bản sao comment (có imagePath)
+        statsEngine.reconcile();
+        logger.info("Migrated {} of {} legacy uploads to content-addressed storage, deleted {} orphaned",
+                migrated, legacyFiles.size(), orphaned);
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.Page;
+import com.example.nasa.model.Pageable;
+import com.example.nasa.repository.CommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bảng xếp hạng comment theo số like, cập nhật O(log n) mỗi lần like/unlike
+ * Thứ hạng lưu trong cây có đếm kích thước cây con nên đọc một trang là O(log n + size) ở mọi độ sâu
+ * Đọc số like không bị khóa, đọc trang và ghi được đồng bộ để giữ hai cấu trúc nhất quán
+ * Số like do caller đọc trước khi gọi update nên có thể về sai thứ tự; comment vừa cập nhật
+ * được đối chiếu lại với DB định kỳ
+ */
+@Component
+public class LikeLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(LikeLeaderboard.class);
+
+    private static final int BUILD_BATCH_SIZE = 5000;
+
+    // Giới hạn số id trong mỗi câu IN khi đối chiếu (vd. sau import hàng loạt)
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LikeWriteBehindBuffer writeBehindBuffer;
+
+    // Nhiều like nhất trước, cùng số like thì id lớn hơn (mới hơn) trước
+    private final RankTree ranking = new RankTree();
+
+    private final ConcurrentMap<Long, Integer> likeCounts = new ConcurrentHashMap<>();
+
+    // Comment bị xóa trong lúc đang build, để build không thêm lại
+    private final ConcurrentMap<Long, Boolean> deletedWhileBuilding = new ConcurrentHashMap<>();
+
+    // Comment đã cập nhật/xóa kể từ lần đối chiếu trước
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return likeCounts.size();
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void startBuild() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread builder = new Thread(this::build, "like-leaderboard");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void build() {
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+
+            long lastId = 0L;
+            while (true) {
+                final long afterId = lastId;
+                List<Object[]> batch = transactionTemplate.execute(
+                        status -> commentRepository.findLikeCounts(afterId, BUILD_BATCH_SIZE));
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+                synchronized (this) {
+                    for (Object[] row : batch) {
+                        Long id = (Long) row[0];
+                        // Giá trị cập nhật trực tiếp trong lúc build mới hơn giá trị trong batch
+                        if (!likeCounts.containsKey(id) && !deletedWhileBuilding.containsKey(id)) {
+                            put(id, (Integer) row[1]);
+                        }
+                        lastId = id;
+                    }
+                }
+            }
+
+            deletedWhileBuilding.clear();
+            ready = true;
+            logger.info("Like leaderboard built: {} comments", likeCounts.size());
+        } catch (RuntimeException e) {
+            logger.error("Like leaderboard build failed, sort by likes stays on SQL", e);
+            started.set(false);
+        }
+    }
+
+    // ============== UPDATES ==============
+
+    public synchronized void update(Long commentId, int likeCount) {
+        dirty.add(commentId);
+        put(commentId, likeCount);
+    }
+
+    public synchronized void remove(Long commentId) {
+        dirty.add(commentId);
+        if (!ready) {
+            deletedWhileBuilding.put(commentId, Boolean.TRUE);
+        }
+        Integer previous = likeCounts.remove(commentId);
+        if (previous != null) {
+            ranking.remove(new Entry(commentId, previous));
+        }
+    }
+
+    private void put(Long commentId, int likeCount) {
+        Integer previous = likeCounts.put(commentId, likeCount);
+        if (previous != null) {
+            if (previous == likeCount) {
+                return;
+            }
+            ranking.remove(new Entry(commentId, previous));
+        }
+        ranking.add(new Entry(commentId, likeCount));
+    }
+
+    /**
+     * Đọc lại like_count từ DB cho các comment vừa cập nhật
+     * Hai toggle song song có thể gọi update theo thứ tự ngược với lúc đọc số like, giá trị cũ ghi sau
+     * sẽ nằm trong leaderboard (và được CommentService hiển thị thay cho DB) tới lần đối chiếu này
+     */
+    @Scheduled(fixedDelayString = "${likes.leaderboard.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        if (!ready || dirty.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Long id : new ArrayList<>(dirty)) {
+            // Comment còn toggle chưa flush: DB chưa có số cuối cùng, để lần sau
+            if (writeBehindBuffer.pendingDelta(id) == 0 && dirty.remove(id)) {
+                ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        int corrected = 0;
+        for (int from = 0; from < ids.size(); from += RECONCILE_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, ids.size()));
+            try {
+                List<Object[]> rows = transactionTemplate.execute(
+                        status -> commentRepository.findLikeCountsByIds(batch));
+                corrected += apply(rows);
+            } catch (RuntimeException e) {
+                dirty.addAll(batch);
+                logger.warn("Like leaderboard reconcile failed, {} comments retried later", batch.size(), e);
+            }
+        }
+        if (corrected > 0) {
+            logger.debug("Like leaderboard reconcile corrected {} of {} comments", corrected, ids.size());
+        }
+    }
+
+    private synchronized int apply(List<Object[]> rows) {
+        int corrected = 0;
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            // Có update/xóa mới sau khi đọc DB: giá trị vừa đọc có thể đã cũ, lần sau đối chiếu lại
+            if (dirty.contains(id) || writeBehindBuffer.pendingDelta(id) != 0) {
+                continue;
+            }
+            Integer likeCount = (Integer) row[1];
+            if (!likeCount.equals(likeCounts.get(id))) {
+                put(id, likeCount);
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+
+    // ============== READS ==============
+
+    /**
+     * Số like hiện tại của một comment, null nếu chưa có trong leaderboard
+     */
+    public Integer likeCount(Long commentId) {
+        return likeCounts.get(commentId);
+    }
+
+    /**
+     * Một trang id comment theo thứ tự số like
+     */
+    public synchronized Page<Long> page(Pageable pageable) {
+        boolean ascending = "ASC".equalsIgnoreCase(pageable.getDirection());
+        List<Long> ids = ranking.range(pageable.getOffset(), pageable.getSize(), ascending);
+        return new Page<>(ids, pageable.getPage(), pageable.getSize(), likeCounts.size());
+    }
+
+    /**
+     * Treap có đếm kích thước cây con (order-statistic tree): thêm, xóa và tìm theo thứ hạng đều O(log n)
+     * Không thread-safe, LikeLeaderboard đồng bộ mọi truy cập
+     */
+    static final class RankTree {
+        private Node root;
+
+        int size() {
+            return size(root);
+        }
+
+        void add(Entry entry) {
+            Node[] parts = split(root, entry);
+            root = merge(merge(parts[0], new Node(entry)), parts[1]);
+        }
+
+        void remove(Entry entry) {
+            root = delete(root, entry);
+        }
+
+        /**
+         * Tối đa limit id bắt đầu từ thứ hạng offset, theo thứ tự của Entry hoặc ngược lại
+         */
+        List<Long> range(int offset, int limit, boolean reverse) {
+            List<Long> ids = new ArrayList<>(Math.max(0, Math.min(limit, size() - offset)));
+            Deque<Node> path = new ArrayDeque<>();
+
+            // Đi xuống tới node có thứ hạng offset, giữ lại các tổ tiên đứng sau nó
+            Node node = root;
+            int skip = offset;
+            while (node != null) {
+                Node before = reverse ? node.right : node.left;
+                int beforeSize = size(before);
+                if (skip < beforeSize) {
+                    path.push(node);
+                    node = before;
+                } else if (skip == beforeSize) {
+                    path.push(node);
+                    break;
+                } else {
+                    skip -= beforeSize + 1;
+                    node = reverse ? node.left : node.right;
+                }
+            }
+
+            while (!path.isEmpty() && ids.size() < limit) {
+                Node current = path.pop();
+                ids.add(current.entry.commentId);
+                for (Node next = reverse ? current.left : current.right; next != null;
+                     next = reverse ? next.right : next.left) {
+                    path.push(next);
+                }
+            }
+            return ids;
+        }
+
+        private static int size(Node node) {
+            return node != null ? node.size : 0;
+        }
+
+        /**
+         * Tách thành hai cây: nhỏ hơn key và lớn hơn hoặc bằng key
+         */
+        private static Node[] split(Node node, Entry key) {
+            if (node == null) {
+                return new Node[2];
+            }
+            if (node.entry.compareTo(key) < 0) {
+                Node[] parts = split(node.right, key);
+                node.right = parts[0];
+                parts[0] = node.update();
+                return parts;
+            }
+            Node[] parts = split(node.left, key);
+            node.left = parts[1];
+            parts[1] = node.update();
+            return parts;
+        }
+
+        /**
+         * Ghép hai cây, mọi entry của left nhỏ hơn mọi entry của right
+         */
+        private static Node merge(Node left, Node right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                return left.update();
+            }
+            right.left = merge(left, right.left);
+            return right.update();
+        }
+
+        private static Node delete(Node node, Entry entry) {
+            if (node == null) {
+                return null;
+            }
+            int compared = entry.compareTo(node.entry);
+            if (compared == 0) {
+                return merge(node.left, node.right);
+            }
+            if (compared < 0) {
+                node.left = delete(node.left, entry);
+            } else {
+                node.right = delete(node.right, entry);
+            }
+            return node.update();
+        }
+
+        private static final class Node {
+            private final Entry entry;
+            private final int priority = ThreadLocalRandom.current().nextInt();
+            private Node left;
+            private Node right;
+            private int size = 1;
+
+            Node(Entry entry) {
+                this.entry = entry;
+            }
+
+            Node update() {
+                size = 1 + RankTree.size(left) + RankTree.size(right);
+                return this;
+            }
+        }
+    }
+
+    static final class Entry implements Comparable<Entry> {
+        private final Long commentId;
+        private final int likeCount;
+
+        Entry(Long commentId, int likeCount) {
+            this.commentId = commentId;
+            this.likeCount = likeCount;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byLikes = Integer.compare(other.likeCount, likeCount);
+            return byLikes != 0 ? byLikes : other.commentId.compareTo(commentId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && compareTo((Entry) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * commentId.hashCode() + likeCount;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.nasa.service;
+
+import com.example.nasa.repository.LikeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Index in-memory "IP nào đã thích comment nào"
+ * Mỗi comment giữ một tập hash 64-bit của IP, load lazy từ DB và được LikeService cập nhật khi toggle
+ * Chỉ giữ tối đa likes.membership.max-comments comment gần dùng nhất
+ */
+@Component
+public class LikeMembershipIndex {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    @Value("${likes.membership.max-comments:5000}")
+    private int maxComments;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    private Map<Long, IpHashSet> sets;
+
+    // Version theo stripe commentId, tránh cache tập IP đã cũ khi có toggle xen giữa lúc load
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    @PostConstruct
+    public void init() {
+        sets = Collections.synchronizedMap(new LinkedHashMap<Long, IpHashSet>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, IpHashSet> eldest) {
+                return size() > maxComments;
+            }
+        });
+    }
+
+    /**
+     * userIp đã thích commentId chưa, load tập IP của comment nếu chưa có trong cache
+     * Phải được gọi trong transaction
+     */
+    public boolean isLiked(Long commentId, String userIp) {
+        IpHashSet set = sets.get(commentId);
+        if (set == null) {
+            set = load(commentId);
+        }
+        return set.contains(hash(userIp));
+    }
+
+    /**
+     * Trạng thái like của userIp cho cả một trang comment bằng tối đa một query
+     * Comment đã có trong cache được trả lời từ bộ nhớ
+     */
+    public Map<Long, Boolean> areLiked(Collection<Long> commentIds, String userIp) {
+        long ipHash = hash(userIp);
+        Map<Long, Boolean> states = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long commentId : commentIds) {
+            IpHashSet set = sets.get(commentId);
+            if (set != null) {
+                states.put(commentId, set.contains(ipHash));
+            } else {
+                states.put(commentId, false);
+                missing.add(commentId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (Long likedId : likeRepository.findLikedCommentIds(missing, userIp)) {
+                states.put(likedId, true);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Ghi nhận một like/unlike đã commit
+     */
+    public void record(Long commentId, String userIp, boolean liked) {
+        versions.incrementAndGet(stripe(commentId));
+        IpHashSet set = sets.get(commentId);
+        if (set != null) {
+            if (liked) {
+                set.add(hash(userIp));
+            } else {
+                set.remove(hash(userIp));
+            }
+        }
+    }
+
+    /**
+     * Bỏ comment khỏi cache (khi comment bị xóa)
+     */
+    public void evict(Long commentId) {
+        versions.incrementAndGet(stripe(commentId));
+        sets.remove(commentId);
+    }
+
+    private IpHashSet load(Long commentId) {
+        long version = versions.get(stripe(commentId));
+        List<String> userIps = likeRepository.findUserIpsByCommentId(commentId);
+
+        IpHashSet set = new IpHashSet(userIps.size());
+        for (String userIp : userIps) {
+            set.add(hash(userIp));
+        }
+        if (versions.get(stripe(commentId)) == version) {
+            sets.put(commentId, set);
+        }
+        return set;
+    }
+
+    private static int stripe(Long commentId) {
+        return (int) (commentId & (VERSION_STRIPES - 1));
+    }
+
+    /**
+     * FNV-1a 64-bit, đủ để va chạm giữa các IP của cùng một comment là không đáng kể
+     */
+    static long hash(String userIp) {
+        long hash = 0xcbf29ce484222325L;
+        if (userIp != null) {
+            for (int i = 0; i < userIp.length(); i++) {
+                hash ^= userIp.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        // 0 được dùng làm ô trống trong IpHashSet
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Tập long dùng open addressing, không box giá trị (~16 byte/IP)
+     */
+    static final class IpHashSet {
+        private long[] slots;
+        private int size;
+
+        IpHashSet(int expected) {
+            int capacity = 16;
+            while (capacity < expected * 2) {
+                capacity <<= 1;
+            }
+            slots = new long[capacity];
+        }
+
+        synchronized boolean contains(long value) {
+            int mask = slots.length - 1;
+            for (int i = mix(value) & mask; slots[i] != 0; i = (i + 1) & mask) {
+                if (slots[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void add(long value) {
+            if ((size + 1) * 2 > slots.length) {
+                rehash(slots.length << 1);
+            }
+            int mask = slots.length - 1;
+            int i = mix(value) & mask;
+            while (slots[i] != 0) {
+                if (slots[i] == value) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            slots[i] = value;
+            size++;
+        }
+
+        synchronized void remove(long value) {
+            int mask = slots.length - 1;
+            int i = mix(value) & mask;
+            while (slots[i] != 0 && slots[i] != value) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == 0) {
+                return;
+            }
+            slots[i] = 0;
+            size--;
+
+            // Dồn lại các phần tử phía sau để không làm đứt chuỗi probe
+            for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                long moved = slots[j];
+                slots[j] = 0;
+                size--;
+                add(moved);
+            }
+        }
+
+        private void rehash(int capacity) {
+            long[] old = slots;
+            slots = new long[capacity];
+            size = 0;
+            for (long value : old) {
+                if (value != 0) {
+                    add(value);
+                }
+            }
+        }
+
+        private static int mix(long value) {
+            long h = value * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
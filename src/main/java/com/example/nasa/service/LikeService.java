@@ -1,42 +1,148 @@
 package com.example.nasa.service;
 
-import com.example.nasa.model.Comment;
-import com.example.nasa.model.Like;
+import com.example.nasa.model.LikeToggleResult;
 import com.example.nasa.repository.CommentRepository;
 import com.example.nasa.repository.LikeRepository;
+import com.example.nasa.repository.SchemaMigrationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
 @Service
 @Transactional
 public class LikeService {
 
+    private static final Logger logger = LoggerFactory.getLogger(LikeService.class);
+
+    private static final String LIKE_COUNT_BACKFILL = "like_count_backfill";
+
     @Autowired
     private LikeRepository likeRepository;
 
     @Autowired
     private CommentRepository commentRepository;
 
-    public boolean toggleLike(Long commentId, String userIp) {
-        if (likeRepository.existsByCommentIdAndUserIp(commentId, userIp)) {
+    @Autowired
+    private SchemaMigrationRepository schemaMigrationRepository;
+
+    @Autowired
+    private LikeWriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    private LikeMembershipIndex membershipIndex;
+
+    @Autowired
+    private StatsEngine statsEngine;
+
+    @Autowired
+    private LikeLeaderboard likeLeaderboard;
+
+    @Autowired
+    private ChangeVersion changeVersion;
+
+    // Công tắc sửa dữ liệu: đếm lại like_count ở mọi lần khởi động (UPDATE toàn bảng với subquery COUNT trên likes)
+    @Value("${likes.recount-on-startup:false}")
+    private boolean recountOnStartup;
+
+    /**
+     * Toggle like và cập nhật like_count trong cùng transaction
+     * Trả về trạng thái mới cùng số lượt thích hiện tại
+     */
+    public LikeToggleResult toggleLike(Long commentId, String userIp) {
+        if (writeBehindBuffer.isEnabled()) {
+            LikeToggleResult result = writeBehindBuffer.toggle(commentId, userIp);
+            if (result != null) {
+                statsEngine.likeCountChanged(commentId, result.getLikeCount());
+                likeLeaderboard.update(commentId, result.getLikeCount());
+                // Số like hiển thị lấy từ leaderboard nên thay đổi ngay, không chờ flush
+                changeVersion.bump();
+                return result;
+            }
+        }
+
+        boolean liked;
+        int deleted = likeRepository.deleteByCommentIdAndUserIp(commentId, userIp);
+        if (deleted > 0) {
             // Unlike
-            likeRepository.deleteByCommentIdAndUserIp(commentId, userIp);
-            return false;
+            commentRepository.adjustLikeCount(commentId, -deleted);
+            liked = false;
         } else {
-            // Like
-            Comment comment = commentRepository.findById(commentId);
-            if (comment != null) {
-                Like like = new Like(comment, userIp);
-                likeRepository.save(like);
-                return true;
+            // Like - INSERT trả về 0 nếu comment không tồn tại hoặc một request song song vừa like
+            int inserted = likeRepository.insertIfAbsent(commentId, userIp, LocalDateTime.now());
+            if (inserted > 0) {
+                commentRepository.adjustLikeCount(commentId, inserted);
+            } else if (commentRepository.findLikeCount(commentId) == null) {
+                return new LikeToggleResult(false, 0);
             }
-            return false;
+            liked = true;
         }
+        Integer likeCount = commentRepository.findLikeCount(commentId);
+        LikeToggleResult result = new LikeToggleResult(liked, likeCount != null ? likeCount : 0);
+        AfterCommit.run(() -> {
+            membershipIndex.record(commentId, userIp, liked);
+            statsEngine.likeCountChanged(commentId, result.getLikeCount());
+            likeLeaderboard.update(commentId, result.getLikeCount());
+            changeVersion.bump();
+        });
+        return result;
     }
 
     @Transactional(readOnly = true)
     public boolean hasUserLiked(Long commentId, String userIp) {
-        return likeRepository.existsByCommentIdAndUserIp(commentId, userIp);
+        Boolean pending = writeBehindBuffer.pendingState(commentId, userIp);
+        if (pending != null) {
+            return pending;
+        }
+        return membershipIndex.isLiked(commentId, userIp);
+    }
+
+    /**
+     * Trạng thái like của userIp cho cả một trang comment (commentId -> đã thích)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Boolean> getLikedStates(Collection<Long> commentIds, String userIp) {
+        Map<Long, Boolean> states = membershipIndex.areLiked(commentIds, userIp);
+        for (Map.Entry<Long, Boolean> state : states.entrySet()) {
+            Boolean pending = writeBehindBuffer.pendingState(state.getKey(), userIp);
+            if (pending != null) {
+                state.setValue(pending);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Metrics của write-behind buffer (queue depth, số lần flush...)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<String, Object> getWriteBehindMetrics() {
+        return writeBehindBuffer.getMetrics();
+    }
+
+    /**
+     * Backfill like_count từ bảng likes một lần, khi nâng cấp từ schema chưa có cột like_count
+     * (hbm2ddl thêm cột với giá trị 0); dòng trong schema_migrations đánh dấu đã chạy
+     * likes.recount-on-startup=true thì đếm lại ở mọi lần khởi động, dùng khi like_count bị lệch
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void recalculateLikeCounts() {
+        boolean backfilled = schemaMigrationRepository.isApplied(LIKE_COUNT_BACKFILL);
+        if (!backfilled || recountOnStartup) {
+            int updated = commentRepository.recalculateLikeCounts();
+            if (!backfilled) {
+                schemaMigrationRepository.markApplied(LIKE_COUNT_BACKFILL);
+            }
+            logger.info("Recalculated like_count for {} comments", updated);
+        }
     }
 }
@@ -0,0 +1,318 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.LikeKey;
+import com.example.nasa.model.LikeToggleResult;
+import com.example.nasa.repository.CommentRepository;
+import com.example.nasa.repository.LikeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind cho like toggle
+ * Toggle được gom trong bộ nhớ theo (commentId, userIp), toggle ngược chiều trong cùng
+ * một cửa sổ flush tự triệt tiêu, phần còn lại được ghi xuống DB bằng JDBC batch
+ */
+@Component
+public class LikeWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LikeWriteBehindBuffer.class);
+
+    @Value("${likes.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${likes.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private LikeMembershipIndex membershipIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Toggle đang chờ flush
+    private final ConcurrentMap<LikeKey, PendingToggle> pending = new ConcurrentHashMap<>();
+
+    // Toggle đang được flush (chưa commit)
+    private final ConcurrentMap<LikeKey, PendingToggle> inFlight = new ConcurrentHashMap<>();
+
+    // Chênh lệch like_count chưa ghi xuống DB, theo commentId
+    private final ConcurrentMap<Long, Integer> pendingDeltas = new ConcurrentHashMap<>();
+
+    private final Object flushLock = new Object();
+
+    // Flush khi buffer đầy, chạy ngoài thread của request
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "like-write-behind-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    // Metrics
+    private final AtomicLong toggles = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong flushedInserts = new AtomicLong();
+    private final AtomicLong flushedDeletes = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ghi nhận một toggle, phải được gọi trong transaction của LikeService
+     * Trả về null nếu comment không tồn tại hoặc buffer đầy (caller ghi đồng bộ, flush được đẩy sang thread nền)
+     */
+    public LikeToggleResult toggle(Long commentId, String userIp) {
+        LikeKey key = new LikeKey(commentId, userIp);
+        if (!pending.containsKey(key) && !inFlight.containsKey(key) && pending.size() >= capacity) {
+            // Buffer đầy: không flush trên thread này (transaction của LikeService đang giữ một connection,
+            // flush cần thêm connection REQUIRES_NEW và flushLock), báo flusher nền và để caller ghi đồng bộ
+            requestFlush();
+            rejected.incrementAndGet();
+            return null;
+        }
+
+        Integer persistedCount = commentRepository.findLikeCount(commentId);
+        if (persistedCount == null) {
+            return null;
+        }
+
+        PendingToggle current = pending.computeIfPresent(key, (k, existing) -> existing.flip());
+        if (current == null) {
+            // Toggle đầu tiên trong cửa sổ: lấy trạng thái gốc từ batch đang flush hoặc từ DB
+            Boolean inFlightState = stateOf(key, inFlight);
+            boolean baseline = inFlightState != null
+                    ? inFlightState
+                    : membershipIndex.isLiked(commentId, userIp);
+            current = pending.compute(key, (k, existing) ->
+                    existing == null ? new PendingToggle(baseline, !baseline) : existing.flip());
+        }
+        toggles.incrementAndGet();
+
+        // Mỗi toggle luôn đảo trạng thái nên like_count thay đổi đúng ±1
+        adjustDelta(commentId, current.desired ? 1 : -1);
+
+        return new LikeToggleResult(current.desired, Math.max(0, persistedCount + pendingDelta(commentId)));
+    }
+
+    /**
+     * Trạng thái like chưa ghi xuống DB, null nếu không có toggle nào đang chờ
+     */
+    public Boolean pendingState(Long commentId, String userIp) {
+        LikeKey key = new LikeKey(commentId, userIp);
+        Boolean liked = stateOf(key, pending);
+        return liked != null ? liked : stateOf(key, inFlight);
+    }
+
+    /**
+     * Chênh lệch like_count chưa ghi xuống DB của một comment
+     */
+    public int pendingDelta(Long commentId) {
+        return pendingDeltas.getOrDefault(commentId, 0);
+    }
+
+    private Boolean stateOf(LikeKey key, Map<LikeKey, PendingToggle> toggles) {
+        PendingToggle toggle = toggles.get(key);
+        return toggle != null ? toggle.desired : null;
+    }
+
+    private void adjustDelta(Long commentId, int delta) {
+        pendingDeltas.merge(commentId, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    // ============== FLUSH ==============
+
+    @Scheduled(fixedDelayString = "${likes.write-behind.flush-interval-ms:500}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    /**
+     * Chạy flush trên thread nền càng sớm càng tốt, nhiều yêu cầu liên tiếp được gộp thành một lần
+     */
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        } catch (RejectedExecutionException e) {
+            // Đang shutdown, flushOnShutdown sẽ ghi phần còn lại
+            flushRequested.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushExecutor.shutdown();
+        if (enabled) {
+            flush();
+            logger.info("Like write-behind buffer flushed on shutdown, {} toggles left", pending.size());
+        }
+    }
+
+    /**
+     * Ghi toàn bộ toggle đang chờ xuống DB trong một transaction
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+
+            Map<LikeKey, PendingToggle> batch = new LinkedHashMap<>();
+            for (LikeKey key : new ArrayList<>(pending.keySet())) {
+                PendingToggle toggle = pending.remove(key);
+                if (toggle != null) {
+                    batch.put(key, toggle);
+                    inFlight.put(key, toggle);
+                }
+            }
+
+            List<LikeKey> inserts = new ArrayList<>();
+            List<LikeKey> deletes = new ArrayList<>();
+            for (Map.Entry<LikeKey, PendingToggle> entry : batch.entrySet()) {
+                PendingToggle toggle = entry.getValue();
+                if (toggle.desired == toggle.persisted) {
+                    cancelled.incrementAndGet();
+                } else if (toggle.desired) {
+                    inserts.add(entry.getKey());
+                } else {
+                    deletes.add(entry.getKey());
+                }
+            }
+
+            try {
+                // Transaction riêng, không tham gia transaction của thread gọi
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                transactionTemplate.execute(status -> {
+                    Map<Long, Integer> deltas = new HashMap<>();
+                    int[] deleted = likeRepository.deleteBatch(deletes);
+                    for (int i = 0; i < deletes.size(); i++) {
+                        deltas.merge(deletes.get(i).getCommentId(), -affectedRows(deleted[i]), Integer::sum);
+                    }
+                    int[] inserted = likeRepository.insertBatch(inserts, LocalDateTime.now());
+                    for (int i = 0; i < inserts.size(); i++) {
+                        deltas.merge(inserts.get(i).getCommentId(), affectedRows(inserted[i]), Integer::sum);
+                    }
+                    deltas.values().removeIf(delta -> delta == 0);
+                    commentRepository.adjustLikeCounts(deltas);
+                    return null;
+                });
+
+                // Đã commit: bỏ phần chênh lệch đã được ghi vào like_count
+                for (Map.Entry<LikeKey, PendingToggle> entry : batch.entrySet()) {
+                    PendingToggle toggle = entry.getValue();
+                    if (toggle.desired != toggle.persisted) {
+                        LikeKey key = entry.getKey();
+                        membershipIndex.record(key.getCommentId(), key.getUserIp(), toggle.desired);
+                        adjustDelta(key.getCommentId(), toggle.desired ? -1 : 1);
+                    }
+                }
+                flushedInserts.addAndGet(inserts.size());
+                flushedDeletes.addAndGet(deletes.size());
+                flushes.incrementAndGet();
+            } catch (RuntimeException e) {
+                // Đưa lại vào hàng đợi, giữ baseline gốc vì DB chưa thay đổi
+                failedFlushes.incrementAndGet();
+                logger.error("Like write-behind flush failed, {} toggles re-queued", batch.size(), e);
+                for (Map.Entry<LikeKey, PendingToggle> entry : batch.entrySet()) {
+                    PendingToggle failed = entry.getValue();
+                    pending.merge(entry.getKey(), failed,
+                            (newer, old) -> new PendingToggle(old.persisted, newer.desired));
+                }
+            } finally {
+                for (LikeKey key : batch.keySet()) {
+                    inFlight.remove(key);
+                }
+                lastFlushMillis = System.currentTimeMillis() - startTime;
+            }
+        }
+    }
+
+    private static int affectedRows(int updateCount) {
+        // Driver có thể trả về SUCCESS_NO_INFO (-2) khi batch được rewrite
+        return updateCount >= 0 ? updateCount : 1;
+    }
+
+    // ============== METRICS ==============
+
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("queueDepth", pending.size());
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("capacity", capacity);
+        metrics.put("toggles", toggles.get());
+        metrics.put("cancelled", cancelled.get());
+        metrics.put("flushedInserts", flushedInserts.get());
+        metrics.put("flushedDeletes", flushedDeletes.get());
+        metrics.put("flushes", flushes.get());
+        metrics.put("failedFlushes", failedFlushes.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("lastFlushMillis", lastFlushMillis);
+        return metrics;
+    }
+
+    /**
+     * Trạng thái của một cặp (commentId, userIp) chưa ghi xuống DB
+     * persisted = trạng thái trong DB, desired = trạng thái người dùng thấy
+     */
+    private static class PendingToggle {
+        private final boolean persisted;
+        private final boolean desired;
+
+        PendingToggle(boolean persisted, boolean desired) {
+            this.persisted = persisted;
+            this.desired = desired;
+        }
+
+        PendingToggle flip() {
+            return new PendingToggle(persisted, !desired);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.nasa.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache memory-mapped cho các file upload được đọc nhiều nhất, giới hạn theo tổng số byte
+ * Chỉ dùng khi container không hỗ trợ sendfile; tắt mặc định (uploads.mmap-cache.max-bytes=0)
+ * Java 8 không unmap chủ động được: vùng map của entry bị loại chỉ được giải phóng khi GC
+ */
+@Component
+public class MappedFileCache {
+
+    private static final int MAX_TRACKED_FILES = 10000;
+
+    @Value("${uploads.mmap-cache.max-bytes:0}")
+    private long maxBytes;
+
+    @Value("${uploads.mmap-cache.max-file-bytes:1048576}")
+    private long maxFileBytes;
+
+    // Số lần đọc trước khi một file được map
+    @Value("${uploads.mmap-cache.min-hits:3}")
+    private int minHits;
+
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<Path, Integer> hits = new LinkedHashMap<Path, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Integer> eldest) {
+            return size() > MAX_TRACKED_FILES;
+        }
+    };
+
+    private long totalBytes;
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Nội dung của file nếu đã (hoặc vừa) được map, null nếu file chưa đủ "nóng" hoặc quá lớn
+     * size/lastModified dùng để phát hiện file đã thay đổi
+     */
+    public synchronized ByteBuffer get(Path path, long size, long lastModified) throws IOException {
+        Entry entry = entries.get(path);
+        if (entry != null) {
+            if (entry.size == size && entry.lastModified == lastModified) {
+                return entry.buffer.duplicate();
+            }
+            entries.remove(path);
+            totalBytes -= entry.size;
+        }
+        if (size == 0 || size > maxFileBytes || size > maxBytes) {
+            return null;
+        }
+        int count = hits.merge(path, 1, Integer::sum);
+        if (count < minHits) {
+            return null;
+        }
+        hits.remove(path);
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes + size > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().size;
+            eldest.remove();
+        }
+        entries.put(path, new Entry(buffer, size, lastModified));
+        totalBytes += size;
+        return buffer.duplicate();
+    }
+
+    public synchronized void evict(Path path) {
+        Entry entry = entries.remove(path);
+        if (entry != null) {
+            totalBytes -= entry.size;
+        }
+        hits.remove(path);
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", isEnabled());
+        metrics.put("files", entries.size());
+        metrics.put("bytes", totalBytes);
+        metrics.put("maxBytes", maxBytes);
+        return metrics;
+    }
+
+    private static final class Entry {
+        private final MappedByteBuffer buffer;
+        private final long size;
+        private final long lastModified;
+
+        Entry(MappedByteBuffer buffer, long size, long lastModified) {
+            this.buffer = buffer;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
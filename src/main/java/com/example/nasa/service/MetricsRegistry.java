@@ -0,0 +1,54 @@
+package com.example.nasa.service;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Histogram độ trễ theo handler (controller) và theo method repository
+ * Tra cứu theo Method nên đường ghi nhận không tạo label string hay object mới
+ */
+@Component
+public class MetricsRegistry {
+
+    private final Histograms handlers = new Histograms();
+
+    private final Histograms repositoryMethods = new Histograms();
+
+    public LatencyHistogram handler(Method method) {
+        return handlers.of(method);
+    }
+
+    public LatencyHistogram repositoryMethod(Method method) {
+        return repositoryMethods.of(method);
+    }
+
+    Collection<LatencyHistogram> getHandlerHistograms() {
+        return handlers.byLabel.values();
+    }
+
+    Collection<LatencyHistogram> getRepositoryHistograms() {
+        return repositoryMethods.byLabel.values();
+    }
+
+    private static final class Histograms {
+        private final ConcurrentMap<Method, LatencyHistogram> byMethod = new ConcurrentHashMap<>();
+
+        // Các overload cùng tên dùng chung một histogram (một series trong Prometheus)
+        private final ConcurrentMap<String, LatencyHistogram> byLabel = new ConcurrentHashMap<>();
+
+        LatencyHistogram of(Method method) {
+            LatencyHistogram histogram = byMethod.get(method);
+            if (histogram != null) {
+                return histogram;
+            }
+            String label = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+            histogram = byLabel.computeIfAbsent(label, LatencyHistogram::new);
+            byMethod.putIfAbsent(method, histogram);
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.nasa.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Xuất metrics ở định dạng text của Prometheus (version 0.0.4)
+ * Gồm histogram theo handler và theo repository method, pool HikariCP, thống kê Hibernate
+ * và các bộ đếm của cache/queue trong ứng dụng
+ */
+@Service
+public class MetricsService {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String[] BUCKET_LABELS = new String[LatencyHistogram.BOUNDS_SECONDS.length + 1];
+
+    static {
+        for (int i = 0; i < LatencyHistogram.BOUNDS_SECONDS.length; i++) {
+            BUCKET_LABELS[i] = BigDecimal.valueOf(LatencyHistogram.BOUNDS_SECONDS[i]).toPlainString();
+        }
+        BUCKET_LABELS[LatencyHistogram.BOUNDS_SECONDS.length] = "+Inf";
+    }
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private CommentFragmentCache commentFragmentCache;
+
+    @Autowired
+    private MappedFileCache mappedFileCache;
+
+    @Autowired
+    private QueryTracker queryTracker;
+
+    @Autowired
+    private ApiExecutor apiExecutor;
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16384);
+
+        histograms(out, "nasa_http_request_duration_seconds", "Request handling time per handler method",
+                "handler", metricsRegistry.getHandlerHistograms());
+        errors(out, "nasa_http_request_errors_total", "Requests that threw or returned 5xx, per handler method",
+                "handler", metricsRegistry.getHandlerHistograms());
+        histograms(out, "nasa_repository_duration_seconds", "Execution time per repository method",
+                "method", metricsRegistry.getRepositoryHistograms());
+        errors(out, "nasa_repository_errors_total", "Repository method calls that threw",
+                "method", metricsRegistry.getRepositoryHistograms());
+
+        hikari(out);
+        hibernate(out);
+
+        components(out, "nasa_likes_write_behind_", likeService.getWriteBehindMetrics());
+        components(out, "nasa_image_variants_", imageVariantService.getMetrics());
+        components(out, "nasa_fragment_cache_", commentFragmentCache.getMetrics());
+        components(out, "nasa_mmap_cache_", mappedFileCache.getMetrics());
+        components(out, "nasa_query_tracker_", queryTracker.getMetrics());
+        components(out, "nasa_api_executor_", apiExecutor.getMetrics());
+        return out.toString();
+    }
+
+    private void hikari(StringBuilder out) {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return;
+        }
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null) {
+            // Pool chưa khởi tạo
+            return;
+        }
+        String label = "{pool=\"" + escape(hikari.getPoolName()) + "\"}";
+        gauge(out, "nasa_hikari_connections_active", "Connections in use", label, pool.getActiveConnections());
+        gauge(out, "nasa_hikari_connections_idle", "Idle connections", label, pool.getIdleConnections());
+        gauge(out, "nasa_hikari_connections_pending", "Threads waiting for a connection", label, pool.getThreadsAwaitingConnection());
+        gauge(out, "nasa_hikari_connections_total", "Connections in the pool", label, pool.getTotalConnections());
+        gauge(out, "nasa_hikari_connections_max", "Maximum pool size", label, hikari.getMaximumPoolSize());
+    }
+
+    private void hibernate(StringBuilder out) {
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        counter(out, "nasa_hibernate_queries_total", "Executed HQL/native queries", statistics.getQueryExecutionCount());
+        gauge(out, "nasa_hibernate_query_max_seconds", "Slowest query execution time", "",
+                statistics.getQueryExecutionMaxTime() / 1000.0);
+        counter(out, "nasa_hibernate_statements_prepared_total", "Prepared JDBC statements", statistics.getPrepareStatementCount());
+        counter(out, "nasa_hibernate_entity_loads_total", "Entity loads", statistics.getEntityLoadCount());
+        counter(out, "nasa_hibernate_entity_fetches_total", "Entity fetches (lazy or N+1)", statistics.getEntityFetchCount());
+        counter(out, "nasa_hibernate_entity_inserts_total", "Entity inserts", statistics.getEntityInsertCount());
+        counter(out, "nasa_hibernate_entity_updates_total", "Entity updates", statistics.getEntityUpdateCount());
+        counter(out, "nasa_hibernate_entity_deletes_total", "Entity deletes", statistics.getEntityDeleteCount());
+        counter(out, "nasa_hibernate_collection_fetches_total", "Collection fetches", statistics.getCollectionFetchCount());
+        counter(out, "nasa_hibernate_second_level_cache_hits_total", "Second-level cache hits", statistics.getSecondLevelCacheHitCount());
+        counter(out, "nasa_hibernate_second_level_cache_misses_total", "Second-level cache misses", statistics.getSecondLevelCacheMissCount());
+        counter(out, "nasa_hibernate_second_level_cache_puts_total", "Second-level cache puts", statistics.getSecondLevelCachePutCount());
+        counter(out, "nasa_hibernate_query_cache_hits_total", "Query cache hits", statistics.getQueryCacheHitCount());
+        counter(out, "nasa_hibernate_query_cache_misses_total", "Query cache misses", statistics.getQueryCacheMissCount());
+        counter(out, "nasa_hibernate_query_cache_puts_total", "Query cache puts", statistics.getQueryCachePutCount());
+        counter(out, "nasa_hibernate_transactions_total", "Transactions", statistics.getTransactionCount());
+        counter(out, "nasa_hibernate_sessions_opened_total", "Opened sessions", statistics.getSessionOpenCount());
+    }
+
+    /**
+     * Các giá trị số trong getMetrics() của component, key camelCase đổi sang snake_case
+     */
+    private void components(StringBuilder out, String prefix, Map<String, Object> metrics) {
+        for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+            Object value = entry.getValue();
+            double number;
+            if (value instanceof Number) {
+                number = ((Number) value).doubleValue();
+            } else if (value instanceof Boolean) {
+                number = (Boolean) value ? 1 : 0;
+            } else {
+                continue;
+            }
+            gauge(out, prefix + snakeCase(entry.getKey()), null, "", number);
+        }
+    }
+
+    private static void histograms(StringBuilder out, String name, String help, String labelName,
+                                   Collection<LatencyHistogram> histograms) {
+        header(out, name, help, "histogram");
+        for (LatencyHistogram histogram : histograms) {
+            String label = labelName + "=\"" + escape(histogram.getLabel()) + "\"";
+            long[] counts = histogram.cumulativeCounts();
+            for (int i = 0; i < counts.length; i++) {
+                out.append(name).append("_bucket{").append(label)
+                        .append(",le=\"").append(BUCKET_LABELS[i]).append("\"} ").append(counts[i]).append('\n');
+            }
+            out.append(name).append("_sum{").append(label).append("} ").append(histogram.sumSeconds()).append('\n');
+            out.append(name).append("_count{").append(label).append("} ").append(counts[counts.length - 1]).append('\n');
+        }
+    }
+
+    private static void errors(StringBuilder out, String name, String help, String labelName,
+                               Collection<LatencyHistogram> histograms) {
+        header(out, name, help, "counter");
+        for (LatencyHistogram histogram : histograms) {
+            out.append(name).append('{').append(labelName).append("=\"").append(escape(histogram.getLabel()))
+                    .append("\"} ").append(histogram.errorCount()).append('\n');
+        }
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, String labels, double value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        if (help != null) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        }
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String snakeCase(String camelCase) {
+        StringBuilder result = new StringBuilder(camelCase.length() + 4);
+        for (int i = 0; i < camelCase.length(); i++) {
+            char c = camelCase.charAt(i);
+            if (Character.isUpperCase(c)) {
+                result.append('_').append(Character.toLowerCase(c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.nasa.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Theo dõi các statement SQL theo request: đếm số statement, cảnh báo khi vượt ngân sách (dấu hiệu N+1)
+ * và ghi các lời gọi repository chậm ra logger "com.example.nasa.slowquery" kèm SQL, tham số và handler gọi tới
+ * SQL được nhận từ QueryCountingInspector (Hibernate StatementInspector) qua ThreadLocal
+ */
+@Component
+public class QueryTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryTracker.class);
+
+    private static final Logger slowQueryLog = LoggerFactory.getLogger("com.example.nasa.slowquery");
+
+    // Giới hạn số SQL giữ lại mỗi request, vượt quá thì chỉ đếm
+    private static final int MAX_RECORDED_STATEMENTS = 500;
+
+    private static final int MAX_ARGUMENT_LENGTH = 100;
+
+    private static final int MAX_LISTED_ELEMENTS = 10;
+
+    private static final int TOP_REPEATED_STATEMENTS = 3;
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    @Value("${diagnostics.query-tracking.enabled:true}")
+    private boolean enabled;
+
+    // Số statement tối đa một request nên thực thi
+    @Value("${diagnostics.statement-budget:25}")
+    private int statementBudget;
+
+    @Value("${diagnostics.slow-query-ms:250}")
+    private long slowQueryMillis;
+
+    private final LongAdder statements = new LongAdder();
+    private final AtomicLong trackedRequests = new AtomicLong();
+    private final AtomicLong budgetExceeded = new AtomicLong();
+    private final AtomicLong slowQueries = new AtomicLong();
+
+    /**
+     * Gọi bởi QueryCountingInspector cho mỗi statement Hibernate chuẩn bị trên thread hiện tại
+     */
+    public static void statementPrepared(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.add(sql);
+        }
+    }
+
+    /**
+     * Bắt đầu đếm statement cho request do handler xử lý
+     */
+    public void beginRequest(String handler) {
+        if (enabled) {
+            CURRENT.set(new Scope(handler));
+        }
+    }
+
+    /**
+     * Kết thúc request: cảnh báo nếu vượt ngân sách statement, trả về số statement đã thực thi
+     */
+    public int endRequest() {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return 0;
+        }
+        CURRENT.remove();
+        trackedRequests.incrementAndGet();
+        statements.add(scope.count);
+
+        if (scope.count > statementBudget) {
+            budgetExceeded.incrementAndGet();
+            logger.warn("Possible N+1: {} executed {} statements (budget {}), most repeated: {}",
+                    scope.handler, scope.count, statementBudget, scope.mostRepeated());
+        }
+        return scope.count;
+    }
+
+    public Scope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Tiếp tục theo dõi scope của request trên thread hiện tại (thread của ApiExecutor, async dispatch)
+     */
+    public void attach(Scope scope) {
+        if (scope != null) {
+            CURRENT.set(scope);
+        }
+    }
+
+    /**
+     * Tách scope khỏi thread hiện tại mà không kết thúc request
+     */
+    public Scope detach() {
+        Scope scope = CURRENT.get();
+        CURRENT.remove();
+        return scope;
+    }
+
+    /**
+     * Bắt đầu một lời gọi repository, trả về vị trí statement hiện tại để endCall lấy đúng SQL của lời gọi
+     * Thread không thuộc request (job nền, import) được theo dõi riêng cho từng lời gọi
+     */
+    public int beginCall() {
+        if (!enabled) {
+            return 0;
+        }
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            scope = new Scope(null);
+            CURRENT.set(scope);
+        }
+        scope.depth++;
+        return scope.count;
+    }
+
+    public void endCall(Method method, Object[] arguments, int mark, long elapsedNanos) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        scope.depth--;
+
+        if (elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(slowQueryMillis)) {
+            slowQueries.incrementAndGet();
+            slowQueryLog.warn("{} ms {}.{}({}) from {}: {}",
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    method.getDeclaringClass().getSimpleName(), method.getName(), describe(arguments),
+                    scope.handler != null ? scope.handler : Thread.currentThread().getName(),
+                    scope.since(mark));
+        }
+
+        if (scope.handler == null && scope.depth == 0) {
+            CURRENT.remove();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("statementBudget", statementBudget);
+        metrics.put("slowQueryMillis", slowQueryMillis);
+        metrics.put("trackedRequests", trackedRequests.get());
+        metrics.put("statements", statements.sum());
+        metrics.put("budgetExceeded", budgetExceeded.get());
+        metrics.put("slowQueries", slowQueries.get());
+        return metrics;
+    }
+
+    /**
+     * Tham số của lời gọi repository (chính là giá trị được bind vào query), cắt ngắn để log gọn
+     */
+    private static String describe(Object[] arguments) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < arguments.length; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            Object argument = arguments[i];
+            String value;
+            if (argument instanceof CharSequence) {
+                value = "'" + argument + "'";
+            } else if (argument instanceof Collection) {
+                Collection<?> collection = (Collection<?>) argument;
+                List<Object> head = new ArrayList<>();
+                for (Object element : collection) {
+                    if (head.size() == MAX_LISTED_ELEMENTS) {
+                        break;
+                    }
+                    head.add(element);
+                }
+                value = head + (collection.size() > head.size() ? " (" + collection.size() + " total)" : "");
+            } else {
+                value = String.valueOf(argument);
+            }
+            result.append(value.length() > MAX_ARGUMENT_LENGTH ? value.substring(0, MAX_ARGUMENT_LENGTH) + "..." : value);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Statement của một request; được chuyển giữa thread Tomcat và thread của ApiExecutor khi xử lý async
+     */
+    public static final class Scope {
+        private final String handler;
+        private final List<String> statements = new ArrayList<>();
+        private int count;
+        private int depth;
+
+        Scope(String handler) {
+            this.handler = handler;
+        }
+
+        void add(String sql) {
+            if (statements.size() < MAX_RECORDED_STATEMENTS) {
+                statements.add(sql);
+            }
+            count++;
+        }
+
+        List<String> since(int mark) {
+            int from = Math.min(mark, statements.size());
+            return new ArrayList<>(statements.subList(from, statements.size()));
+        }
+
+        /**
+         * Các SQL lặp lại nhiều nhất, mẫu điển hình của N+1
+         */
+        String mostRepeated() {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (String sql : statements) {
+                counts.merge(sql, 1, Integer::sum);
+            }
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+            entries.sort((a, b) -> b.getValue() - a.getValue());
+
+            StringBuilder result = new StringBuilder();
+            for (int i = 0; i < entries.size() && i < TOP_REPEATED_STATEMENTS; i++) {
+                result.append("\n  ").append(entries.get(i).getValue()).append("x ").append(entries.get(i).getKey());
+            }
+            return result.toString();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.CommentSummary;
+import com.example.nasa.model.StatsSnapshot;
+import com.example.nasa.repository.CommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Thống kê comment được cập nhật dần khi comment/like thay đổi
+ * /api/stats đọc snapshot bất biến, không truy cập DB; snapshot được đối chiếu lại với DB định kỳ
+ * và ngay sau những thay đổi không thể tính tăng dần (xóa top comment, đổi leader like...)
+ */
+@Component
+public class StatsEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatsEngine.class);
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile StatsSnapshot snapshot;
+
+    // Cần đối chiếu lại với DB ở lần kiểm tra tiếp theo
+    private volatile boolean dirty;
+
+    // Tăng mỗi lần cập nhật tăng dần, để reconcile biết kết quả DB của nó có thể đã cũ
+    private long updates;
+
+    // Tăng mỗi khi nội dung snapshot đổi, kể cả khi reconcile sửa lại snapshot mà không có ghi mới
+    private volatile long generation;
+
+    /**
+     * Snapshot hiện tại; chỉ truy cập DB một lần nếu chưa từng được build
+     */
+    public StatsSnapshot getSnapshot() {
+        StatsSnapshot current = snapshot;
+        if (current == null) {
+            reconcile();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Dùng trong ETag của /api/stats: ChangeVersion không đổi khi reconcile thay leader hoặc top comment
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void initialize() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${stats.reconcile-interval-ms:60000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void reconcileIfDirty() {
+        if (dirty || (snapshot != null && !snapshot.getToday().equals(LocalDate.now()))) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Tính lại toàn bộ thống kê từ DB
+     */
+    public void reconcile() {
+        try {
+            dirty = false;
+            long startUpdates;
+            synchronized (this) {
+                startUpdates = updates;
+            }
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            StatsSnapshot fresh = transactionTemplate.execute(status -> {
+                LocalDate today = LocalDate.now();
+                return new StatsSnapshot(
+                        commentRepository.countAll(),
+                        today,
+                        commentRepository.countByDate(today),
+                        CommentSummary.from(commentRepository.findTopRatedComment()),
+                        CommentSummary.from(commentRepository.findMostLikedComment()));
+            });
+            synchronized (this) {
+                publish(fresh);
+                if (updates != startUpdates) {
+                    // Có thay đổi xen giữa lúc đọc DB, chạy lại ở lần kiểm tra sau
+                    dirty = true;
+                }
+            }
+        } catch (RuntimeException e) {
+            dirty = true;
+            logger.error("Stats reconcile failed, keeping previous snapshot", e);
+        }
+    }
+
+    // ============== INCREMENTAL UPDATES ==============
+
+    public synchronized void commentAdded(CommentSummary comment) {
+        updates++;
+        StatsSnapshot current = snapshot;
+        if (current == null) {
+            dirty = true;
+            return;
+        }
+
+        CommentSummary topRated = current.getTopRatedComment();
+        if (topRated == null || comment.getRating() > topRated.getRating()
+                || (comment.getRating() == topRated.getRating()
+                && comment.getCreatedAt().isAfter(topRated.getCreatedAt()))) {
+            topRated = comment;
+        }
+
+        CommentSummary mostLiked = current.getMostLikedComment();
+        if (mostLiked == null) {
+            mostLiked = comment;
+        }
+
+        long todayComments = current.getTodayComments()
+                + (current.getToday().equals(comment.getCommentDate()) ? 1 : 0);
+        publish(new StatsSnapshot(current.getTotalComments() + 1, current.getToday(), todayComments,
+                topRated, mostLiked));
+    }
+
+    public synchronized void commentDeleted(CommentSummary comment) {
+        updates++;
+        StatsSnapshot current = snapshot;
+        if (current == null) {
+            dirty = true;
+            return;
+        }
+
+        CommentSummary topRated = current.getTopRatedComment();
+        CommentSummary mostLiked = current.getMostLikedComment();
+        if (isSame(topRated, comment) || isSame(mostLiked, comment)) {
+            // Không biết comment đứng sau là ai, để reconcile tìm lại
+            dirty = true;
+        }
+
+        long todayComments = current.getTodayComments()
+                - (current.getToday().equals(comment.getCommentDate()) ? 1 : 0);
+        publish(new StatsSnapshot(Math.max(0, current.getTotalComments() - 1), current.getToday(),
+                Math.max(0, todayComments), topRated, mostLiked));
+    }
+
+    public synchronized void likeCountChanged(Long commentId, int likeCount) {
+        updates++;
+        StatsSnapshot current = snapshot;
+        if (current == null) {
+            dirty = true;
+            return;
+        }
+
+        CommentSummary mostLiked = current.getMostLikedComment();
+        CommentSummary topRated = current.getTopRatedComment();
+        if (mostLiked != null && Objects.equals(mostLiked.getId(), commentId)) {
+            mostLiked = mostLiked.withLikeCount(likeCount);
+            if (likeCount < current.getMostLikedComment().getLikeCount()) {
+                // Leader bị unlike, có thể đã có comment khác vượt lên
+                dirty = true;
+            }
+        } else if (mostLiked == null || likeCount > mostLiked.getLikeCount()) {
+            // Comment khác vượt leader, cần load thông tin của nó
+            dirty = true;
+        }
+        if (topRated != null && Objects.equals(topRated.getId(), commentId)) {
+            topRated = topRated.withLikeCount(likeCount);
+        }
+
+        if (mostLiked != current.getMostLikedComment() || topRated != current.getTopRatedComment()) {
+            publish(new StatsSnapshot(current.getTotalComments(), current.getToday(),
+                    current.getTodayComments(), topRated, mostLiked));
+        }
+    }
+
+    private void publish(StatsSnapshot fresh) {
+        if (!fresh.sameContentAs(snapshot)) {
+            generation++;
+        }
+        snapshot = fresh;
+    }
+
+    private static boolean isSame(CommentSummary a, CommentSummary b) {
+        return a != null && b != null && Objects.equals(a.getId(), b.getId());
+    }
+}
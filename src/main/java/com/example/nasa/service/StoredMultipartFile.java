@@ -0,0 +1,114 @@
+package com.example.nasa.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * File upload đã được ghi thẳng vào store trong lúc parse multipart
+ * Nếu nội dung bị từ chối (không phải ảnh), lỗi được báo khi controller gọi FileStorageService.storeFile
+ */
+public class StoredMultipartFile implements MultipartFile {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final long size;
+    private final String storedPath;
+    private final Path file;
+    private final String rejection;
+
+    private StoredMultipartFile(String name, String originalFilename, String contentType, long size,
+                                String storedPath, Path file, String rejection) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.size = size;
+        this.storedPath = storedPath;
+        this.file = file;
+        this.rejection = rejection;
+    }
+
+    static StoredMultipartFile stored(String name, String originalFilename, String contentType, long size,
+                                      String storedPath, Path file) {
+        return new StoredMultipartFile(name, originalFilename, contentType, size, storedPath, file, null);
+    }
+
+    static StoredMultipartFile empty(String name, String originalFilename) {
+        return new StoredMultipartFile(name, originalFilename, null, 0, null, null, null);
+    }
+
+    static StoredMultipartFile rejected(String name, String originalFilename, String rejection) {
+        return new StoredMultipartFile(name, originalFilename, null, -1, null, null, rejection);
+    }
+
+    /**
+     * Đường dẫn tương đối trong store (giá trị cho Comment.imagePath)
+     */
+    public String getStoredPath() throws IOException {
+        if (rejection != null) {
+            throw new IOException(rejection);
+        }
+        if (storedPath == null) {
+            throw new IOException("Cannot store empty file");
+        }
+        return storedPath;
+    }
+
+    /**
+     * Đường dẫn trong store nếu part đã được lưu, null nếu rỗng hoặc bị từ chối
+     */
+    public String getStoredPathOrNull() {
+        return storedPath;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        // Part bị từ chối không rỗng: controller vẫn gọi storeFile để nhận lỗi
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return Math.max(size, 0);
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return file != null ? Files.readAllBytes(file) : new byte[0];
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        if (file == null) {
+            throw new IOException("Nothing was stored for part " + name);
+        }
+        Files.copy(file, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.CommentSummary;
+import com.example.nasa.repository.CommentRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CommentExportServiceTest {
+
+    private static final List<CommentSummary> COMMENTS = Arrays.asList(
+            new CommentSummary(1L, "An Nguyễn", 5, "Đẹp quá", LocalDate.of(2024, 3, 1),
+                    LocalDateTime.of(2024, 3, 1, 8, 30), "a.jpg", 2),
+            new CommentSummary(2L, "Bob", 4, "line1\nline2 \"quoted\"", LocalDate.of(2024, 3, 2),
+                    LocalDateTime.of(2024, 3, 2, 9, 0), null, 0),
+            new CommentSummary(3L, "Chi", 3, "ok", LocalDate.of(2024, 3, 3),
+                    LocalDateTime.of(2024, 3, 3, 10, 15, 5), "c.png", 7));
+
+    @Test
+    void ndjsonLinesHaveNoSeparatorBetweenObjects() throws Exception {
+        CommentExportService service = serviceExporting(COMMENTS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service.export(CommentExportService.Format.NDJSON, null, null, out);
+
+        String expected =
+                "{\"id\":1,\"authorName\":\"An Nguyễn\",\"rating\":5,\"commentText\":\"Đẹp quá\"," +
+                        "\"commentDate\":\"2024-03-01\",\"createdAt\":\"2024-03-01T08:30\"," +
+                        "\"imagePath\":\"a.jpg\",\"likeCount\":2}\n" +
+                "{\"id\":2,\"authorName\":\"Bob\",\"rating\":4,\"commentText\":\"line1\\nline2 \\\"quoted\\\"\"," +
+                        "\"commentDate\":\"2024-03-02\",\"createdAt\":\"2024-03-02T09:00\"," +
+                        "\"imagePath\":null,\"likeCount\":0}\n" +
+                "{\"id\":3,\"authorName\":\"Chi\",\"rating\":3,\"commentText\":\"ok\"," +
+                        "\"commentDate\":\"2024-03-03\",\"createdAt\":\"2024-03-03T10:15:05\"," +
+                        "\"imagePath\":\"c.png\",\"likeCount\":7}\n";
+        assertEquals(3, rows);
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    void csvQuotesSpecialCharacters() throws Exception {
+        CommentExportService service = serviceExporting(COMMENTS.subList(1, 2));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(CommentExportService.Format.CSV, null, null, out);
+
+        String expected = "id,author_name,rating,comment_text,comment_date,created_at,image_path,like_count\n" +
+                "2,Bob,4,\"line1\nline2 \"\"quoted\"\"\",2024-03-02,2024-03-02T09:00,,0\n";
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    private static CommentExportService serviceExporting(List<CommentSummary> comments) throws Exception {
+        CommentRepository repository = new CommentRepository() {
+            @Override
+            public long scrollForExport(LocalDate from, LocalDate to, RowHandler<CommentSummary> handler)
+                    throws IOException {
+                for (CommentSummary comment : comments) {
+                    handler.handle(comment);
+                }
+                return comments.size();
+            }
+        };
+
+        CommentExportService service = new CommentExportService();
+        Field field = CommentExportService.class.getDeclaredField("commentRepository");
+        field.setAccessible(true);
+        field.set(service, repository);
+        return service;
+    }
+}
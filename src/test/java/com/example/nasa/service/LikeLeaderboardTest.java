@@ -0,0 +1,195 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.Page;
+import com.example.nasa.model.Pageable;
+import com.example.nasa.repository.CommentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LikeLeaderboardTest {
+
+    @Test
+    void rangeReadsByRankInBothDirections() {
+        LikeLeaderboard.RankTree tree = new LikeLeaderboard.RankTree();
+        tree.add(new LikeLeaderboard.Entry(1L, 3));
+        tree.add(new LikeLeaderboard.Entry(2L, 10));
+        tree.add(new LikeLeaderboard.Entry(3L, 3));
+        tree.add(new LikeLeaderboard.Entry(4L, 0));
+        tree.add(new LikeLeaderboard.Entry(5L, 7));
+
+        // Nhiều like trước, cùng số like thì id lớn trước
+        assertEquals(Arrays.asList(2L, 5L, 3L, 1L, 4L), tree.range(0, 10, false));
+        assertEquals(Arrays.asList(3L, 1L), tree.range(2, 2, false));
+        assertEquals(Arrays.asList(4L, 1L, 3L, 5L, 2L), tree.range(0, 10, true));
+        assertEquals(Arrays.asList(1L, 3L), tree.range(1, 2, true));
+        assertEquals(Collections.singletonList(4L), tree.range(4, 3, false));
+        assertEquals(5, tree.size());
+    }
+
+    @Test
+    void rangePastTheEndIsEmpty() {
+        LikeLeaderboard.RankTree tree = new LikeLeaderboard.RankTree();
+        assertTrue(tree.range(0, 10, false).isEmpty());
+
+        for (long id = 1; id <= 3; id++) {
+            tree.add(new LikeLeaderboard.Entry(id, (int) id));
+        }
+        assertTrue(tree.range(3, 10, false).isEmpty());
+        assertTrue(tree.range(3, 10, true).isEmpty());
+        assertTrue(tree.range(1000, 10, false).isEmpty());
+        assertTrue(tree.range(0, 0, false).isEmpty());
+    }
+
+    @Test
+    void rangeMatchesSortedListAfterChurn() {
+        LikeLeaderboard.RankTree tree = new LikeLeaderboard.RankTree();
+        Map<Long, Integer> counts = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++) {
+            long id = random.nextInt(2000) + 1;
+            Integer previous = counts.remove(id);
+            if (previous != null) {
+                tree.remove(new LikeLeaderboard.Entry(id, previous));
+            }
+            if (random.nextInt(5) != 0) {
+                int count = random.nextInt(30);
+                counts.put(id, count);
+                tree.add(new LikeLeaderboard.Entry(id, count));
+            }
+        }
+
+        List<Long> expected = new ArrayList<>(counts.keySet());
+        expected.sort((a, b) -> {
+            int byLikes = Integer.compare(counts.get(b), counts.get(a));
+            return byLikes != 0 ? byLikes : Long.compare(b, a);
+        });
+        List<Long> reversed = new ArrayList<>(expected);
+        Collections.reverse(reversed);
+
+        assertEquals(expected.size(), tree.size());
+        for (int offset = 0; offset <= expected.size() + 20; offset += 37) {
+            int to = Math.min(offset + 20, expected.size());
+            int from = Math.min(offset, to);
+            assertEquals(expected.subList(from, to), tree.range(offset, 20, false), "offset " + offset);
+            assertEquals(reversed.subList(from, to), tree.range(offset, 20, true), "offset " + offset);
+        }
+    }
+
+    @Test
+    void removingAMissingEntryChangesNothing() {
+        LikeLeaderboard.RankTree tree = new LikeLeaderboard.RankTree();
+        tree.add(new LikeLeaderboard.Entry(1L, 5));
+        tree.remove(new LikeLeaderboard.Entry(1L, 4));
+        tree.remove(new LikeLeaderboard.Entry(2L, 5));
+
+        assertEquals(1, tree.size());
+        assertEquals(Collections.singletonList(1L), tree.range(0, 10, false));
+    }
+
+    @Test
+    void reconcileReplacesOutOfOrderUpdateWithDatabaseCount() throws Exception {
+        StubCommentRepository commentRepository = new StubCommentRepository();
+        LikeLeaderboard leaderboard = readyLeaderboard(commentRepository);
+        commentRepository.likeCounts.put(1L, 4);
+        commentRepository.likeCounts.put(2L, 3);
+
+        // Toggle thứ hai (4 like) gọi update trước toggle thứ nhất (3 like)
+        leaderboard.update(2L, 3);
+        leaderboard.update(1L, 4);
+        leaderboard.update(1L, 3);
+        assertEquals(Arrays.asList(2L, 1L), leaderboard.page(new Pageable(0, 10, "likeCount", "DESC")).getContent());
+
+        leaderboard.reconcile();
+
+        assertEquals(4, leaderboard.likeCount(1L).intValue());
+        Page<Long> page = leaderboard.page(new Pageable(0, 10, "likeCount", "DESC"));
+        assertEquals(Arrays.asList(1L, 2L), page.getContent());
+    }
+
+    @Test
+    void reconcileSkipsCommentsUpdatedAfterTheDatabaseRead() throws Exception {
+        StubCommentRepository commentRepository = new StubCommentRepository();
+        LikeLeaderboard leaderboard = readyLeaderboard(commentRepository);
+        commentRepository.likeCounts.put(1L, 4);
+        leaderboard.update(1L, 4);
+        commentRepository.afterRead = () -> {
+            commentRepository.likeCounts.put(1L, 5);
+            leaderboard.update(1L, 5);
+        };
+
+        leaderboard.reconcile();
+        assertEquals(5, leaderboard.likeCount(1L).intValue());
+
+        // Comment bị xóa sau lần đọc DB không được thêm lại
+        commentRepository.afterRead = () -> leaderboard.remove(1L);
+        leaderboard.reconcile();
+        assertNull(leaderboard.likeCount(1L));
+    }
+
+    private static LikeLeaderboard readyLeaderboard(CommentRepository commentRepository) throws Exception {
+        LikeLeaderboard leaderboard = new LikeLeaderboard();
+        set(leaderboard, "commentRepository", commentRepository);
+        set(leaderboard, "transactionManager", new NoOpTransactionManager());
+        set(leaderboard, "writeBehindBuffer", new LikeWriteBehindBuffer());
+        set(leaderboard, "ready", true);
+        return leaderboard;
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static class StubCommentRepository extends CommentRepository {
+        private final Map<Long, Integer> likeCounts = new HashMap<>();
+        private Runnable afterRead;
+
+        @Override
+        public List<Object[]> findLikeCountsByIds(Collection<Long> ids) {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : ids) {
+                if (likeCounts.containsKey(id)) {
+                    rows.add(new Object[]{id, likeCounts.get(id)});
+                }
+            }
+            if (afterRead != null) {
+                afterRead.run();
+            }
+            return rows;
+        }
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.nasa.service;
+
+import com.example.nasa.model.LikeKey;
+import com.example.nasa.model.LikeToggleResult;
+import com.example.nasa.repository.CommentRepository;
+import com.example.nasa.repository.LikeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LikeWriteBehindBufferTest {
+
+    private static final Long COMMENT_ID = 1L;
+    private static final String IP = "10.0.0.1";
+    private static final LikeKey KEY = new LikeKey(COMMENT_ID, IP);
+
+    private StubLikeRepository likeRepository;
+    private StubCommentRepository commentRepository;
+    private LikeWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        likeRepository = new StubLikeRepository();
+        commentRepository = new StubCommentRepository();
+        commentRepository.likeCounts.put(COMMENT_ID, 5);
+        commentRepository.likeCounts.put(2L, 0);
+
+        LikeMembershipIndex membershipIndex = new LikeMembershipIndex();
+        set(membershipIndex, "maxComments", 100);
+        set(membershipIndex, "likeRepository", likeRepository);
+        membershipIndex.init();
+
+        buffer = new LikeWriteBehindBuffer();
+        set(buffer, "enabled", true);
+        set(buffer, "capacity", 100);
+        set(buffer, "likeRepository", likeRepository);
+        set(buffer, "commentRepository", commentRepository);
+        set(buffer, "membershipIndex", membershipIndex);
+        set(buffer, "transactionManager", new NoOpTransactionManager());
+    }
+
+    @Test
+    void toggleIsPendingUntilFlushed() {
+        LikeToggleResult result = buffer.toggle(COMMENT_ID, IP);
+
+        assertTrue(result.isLiked());
+        assertEquals(6, result.getLikeCount());
+        assertEquals(Boolean.TRUE, buffer.pendingState(COMMENT_ID, IP));
+        assertEquals(1, buffer.pendingDelta(COMMENT_ID));
+
+        buffer.flush();
+
+        assertEquals(Collections.singletonList(KEY), likeRepository.inserted);
+        assertTrue(likeRepository.deleted.isEmpty());
+        assertEquals(6, commentRepository.likeCounts.get(COMMENT_ID).intValue());
+        assertNull(buffer.pendingState(COMMENT_ID, IP));
+        assertEquals(0, buffer.pendingDelta(COMMENT_ID));
+        assertEquals(0, buffer.getQueueDepth());
+    }
+
+    @Test
+    void oppositeTogglesInOneWindowCancel() {
+        buffer.toggle(COMMENT_ID, IP);
+        LikeToggleResult result = buffer.toggle(COMMENT_ID, IP);
+
+        assertFalse(result.isLiked());
+        assertEquals(5, result.getLikeCount());
+
+        buffer.flush();
+
+        assertTrue(likeRepository.inserted.isEmpty());
+        assertTrue(likeRepository.deleted.isEmpty());
+        assertEquals(1L, buffer.getMetrics().get("cancelled"));
+        assertEquals(5, commentRepository.likeCounts.get(COMMENT_ID).intValue());
+    }
+
+    @Test
+    void toggleDuringFlushStartsFromInFlightState() {
+        buffer.toggle(COMMENT_ID, IP);
+        List<LikeToggleResult> duringFlush = new ArrayList<>();
+        likeRepository.beforeInsert = () -> duringFlush.add(buffer.toggle(COMMENT_ID, IP));
+
+        buffer.flush();
+
+        // Toggle thứ hai thấy trạng thái của batch đang flush (đã thích), không phải DB cũ
+        assertFalse(duringFlush.get(0).isLiked());
+        assertEquals(Collections.singletonList(KEY), likeRepository.inserted);
+        assertEquals(Boolean.FALSE, buffer.pendingState(COMMENT_ID, IP));
+        assertEquals(-1, buffer.pendingDelta(COMMENT_ID));
+        assertEquals(6, commentRepository.likeCounts.get(COMMENT_ID).intValue());
+
+        likeRepository.beforeInsert = null;
+        buffer.flush();
+
+        assertEquals(Collections.singletonList(KEY), likeRepository.deleted);
+        assertEquals(5, commentRepository.likeCounts.get(COMMENT_ID).intValue());
+        assertEquals(0, buffer.pendingDelta(COMMENT_ID));
+        assertNull(buffer.pendingState(COMMENT_ID, IP));
+    }
+
+    @Test
+    void failedFlushIsRequeuedWithPersistedBaseline() {
+        buffer.toggle(COMMENT_ID, IP);
+        likeRepository.failInserts = true;
+
+        buffer.flush();
+
+        assertEquals(1L, buffer.getMetrics().get("failedFlushes"));
+        assertEquals(1, buffer.getQueueDepth());
+        assertEquals(Boolean.TRUE, buffer.pendingState(COMMENT_ID, IP));
+        assertEquals(1, buffer.pendingDelta(COMMENT_ID));
+
+        likeRepository.failInserts = false;
+        buffer.flush();
+
+        assertEquals(Collections.singletonList(KEY), likeRepository.inserted);
+        assertEquals(6, commentRepository.likeCounts.get(COMMENT_ID).intValue());
+        assertEquals(0, buffer.pendingDelta(COMMENT_ID));
+    }
+
+    @Test
+    void toggleDuringFailedFlushCancelsAgainstDatabaseState() {
+        buffer.toggle(COMMENT_ID, IP);
+        likeRepository.failInserts = true;
+        likeRepository.beforeInsert = () -> buffer.toggle(COMMENT_ID, IP);
+
+        buffer.flush();
+
+        // Re-queue giữ baseline "chưa thích" của DB, nên unlike xen giữa triệt tiêu like bị lỗi
+        assertEquals(Boolean.FALSE, buffer.pendingState(COMMENT_ID, IP));
+        assertEquals(0, buffer.pendingDelta(COMMENT_ID));
+
+        likeRepository.failInserts = false;
+        likeRepository.beforeInsert = null;
+        buffer.flush();
+
+        assertTrue(likeRepository.inserted.isEmpty());
+        assertTrue(likeRepository.deleted.isEmpty());
+        assertEquals(5, commentRepository.likeCounts.get(COMMENT_ID).intValue());
+    }
+
+    @Test
+    void fullBufferRejectsNewKeysAndFlushesInBackground() throws Exception {
+        set(buffer, "capacity", 1);
+        buffer.toggle(COMMENT_ID, IP);
+
+        assertNull(buffer.toggle(2L, IP));
+        assertEquals(1L, buffer.getMetrics().get("rejected"));
+
+        // Flush chạy trên thread nền, không phải thread gọi toggle
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long) buffer.getMetrics().get("flushes") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1L, buffer.getMetrics().get("flushes"));
+        assertEquals(0, buffer.getQueueDepth());
+        assertTrue(likeRepository.insertThreads.stream().allMatch(name -> name.equals("like-write-behind-flush")));
+        assertEquals(Collections.singletonList(KEY), likeRepository.inserted);
+    }
+
+    @Test
+    void unknownCommentIsNotBuffered() {
+        assertNull(buffer.toggle(99L, IP));
+        assertEquals(0, buffer.getQueueDepth());
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static class StubLikeRepository extends LikeRepository {
+        private final Set<LikeKey> likes = new HashSet<>();
+        private final List<LikeKey> inserted = new ArrayList<>();
+        private final List<LikeKey> deleted = new ArrayList<>();
+        private final List<String> insertThreads = new ArrayList<>();
+        private volatile Runnable beforeInsert;
+        private volatile boolean failInserts;
+
+        @Override
+        public synchronized List<String> findUserIpsByCommentId(Long commentId) {
+            List<String> userIps = new ArrayList<>();
+            for (LikeKey like : likes) {
+                if (like.getCommentId().equals(commentId)) {
+                    userIps.add(like.getUserIp());
+                }
+            }
+            return userIps;
+        }
+
+        @Override
+        public synchronized int[] insertBatch(List<LikeKey> keys, LocalDateTime createdAt) {
+            insertThreads.add(Thread.currentThread().getName());
+            if (beforeInsert != null) {
+                beforeInsert.run();
+            }
+            if (failInserts) {
+                throw new IllegalStateException("insert failed");
+            }
+            int[] counts = new int[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                counts[i] = likes.add(keys.get(i)) ? 1 : 0;
+                inserted.add(keys.get(i));
+            }
+            return counts;
+        }
+
+        @Override
+        public synchronized int[] deleteBatch(List<LikeKey> keys) {
+            int[] counts = new int[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                counts[i] = likes.remove(keys.get(i)) ? 1 : 0;
+                deleted.add(keys.get(i));
+            }
+            return counts;
+        }
+    }
+
+    private static class StubCommentRepository extends CommentRepository {
+        private final Map<Long, Integer> likeCounts = new HashMap<>();
+
+        @Override
+        public synchronized Integer findLikeCount(Long commentId) {
+            return likeCounts.get(commentId);
+        }
+
+        @Override
+        public synchronized void adjustLikeCounts(Map<Long, Integer> deltas) {
+            deltas.forEach((commentId, delta) -> likeCounts.merge(commentId, delta, Integer::sum));
+        }
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}